@@ -1,12 +1,17 @@
 package pippin;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 public class Assembler {
@@ -58,159 +63,378 @@ public class Assembler {
 	  * @return
 	  */
 	 public static boolean assemble(File input, File output, Map<Integer, String> errors) {
-		  if (errors == null){
-			  throw new IllegalArgumentException("Coding error: the error map is null");
-		  }
-		  
-		  ArrayList<String> inputText = new ArrayList<String>(); 
-		  
-		  try (Scanner inp = new Scanner(input)) {
-			  while(inp.hasNextLine()){
-				  inputText.add(inp.nextLine());
-			  }
-		  } catch (FileNotFoundException e) {
-			  errors.put(0, "Error: Unable to open the input file");
-		  }
-		  
-		
-		  for(int i=0; i<inputText.size();i++){
-			  if (inputText.get(i).trim().length() > 0){
-				  if ((inputText.get(i).charAt(0) == ' ') || (inputText.get(i).charAt(0) == '\t')){
-					  errors.put(i+1, "Error on line " + (i+1) + ": starts with white space"); 
-				  }
-			  }
-		  }
-		  
-		  for (int i=0; i<inputText.size(); i++){
-			  if (inputText.get(i).trim().length() == 0){
-				  for (int k=i+1; k<inputText.size(); k++){
-					  if (inputText.get(k).trim().length() > 0){
-						  errors.put(i+1, "Error on line " + (i+1) + ": illegal blank line");
-						  return false;
-					  }
-				  }
-			  }
-		  }
-		  
-		  ArrayList<String> inCode = new ArrayList<String>();
-		  ArrayList<String> inData = new ArrayList<String>();
-		  int dataCheck = inputText.size()-1;
-		  
-		  for (int i=0; i<inputText.size();i++){
-			  if (inputText.get(i).trim().equalsIgnoreCase("DATA")){
-			  		if (inputText.get(i).trim().equals("DATA")){
-			  			dataCheck = i;
-			  			break;
-			  		} else {
-			  			errors.put(i+1, "Error in line "+i+1+": DATA must be in caps.");
-			  		}
-			  }
-		  }
-		  
-		  for (int i=0; i<dataCheck; i++){
-			  inCode.add(inputText.get(i).trim());
-		  }
-		  
-		  for (int i=dataCheck+1; i<inputText.size();i++){
-			  inData.add(inputText.get(i).trim());
-		  }
-		  
-		  ArrayList<String> outCode = new ArrayList<String>();
-		  
-		  for (int i=0; i<inCode.size();i++){
-			  String[] parts = inCode.get(i).trim().split("\\s+");
-			  
-			  
-			  if(!InstructionMap.opcode.containsKey(parts[0].toUpperCase())){
-				  errors.put(i+1, "Error in line "+(i+1)+": Illegal mnemonic.");
-				  break;
-			  } else if(!InstructionMap.opcode.containsKey(parts[0])){
-				  errors.put(i+1, "Error in line "+(i+1)+": Mnemonics must be uppercase");
-				  break;
-			  } 
-			  
-			  if (noArgument.contains(parts[0])){
-				  if(parts.length == 1){
-					  outCode.add(Integer.toString(InstructionMap.opcode.get(parts[0]),16) + " 0 0");					  
-				  } else{
-					  errors.put(i+1, "Error in line "+(i+1)+": Mnemonic doesn't take arguments");
-				  }
-			  } else if (!noArgument.contains(parts[0]) && parts.length < 2){
-				  errors.put(i+1, "Error on line "+(i+1)+": No argument provided for mnemonic.");
-				  break;
-			  }else if (parts.length > 2){
-				  errors.put(i+1, "Error in line "+(i+1)+": Mnemonic contains too many arguments");
-			  } else if (parts[1].length() >= 3 && parts[1].charAt(0) == '[' && parts[1].charAt(1) == '['){
-				  if (allowsIndirect.contains(parts[0])){
-					  try{
-						  int arg = Integer.parseInt(parts[1].substring(2,parts[1].length()),16);
-						  outCode.add(Integer.toString(InstructionMap.opcode.get(parts[0].toUpperCase()),16) + " " +
-						  Integer.toString(arg,16).toUpperCase() + " 2");
-					  } catch(NumberFormatException e) { 
-						  errors.put(i+1, "Error on line "+(i+1)+ ": indirect argument is not a hex number");
-					  } 
-				  } else {
-					  errors.put(i+1, "Error in line "+i+1+": Mnemonic does not allow Indirect addressing");
-				  }  
-			  } else if (parts[1].length() >= 2 && parts[1].charAt(0) == '['){
-				  try{
-					  int arg = Integer.parseInt(parts[1].substring(1,parts[1].length()),16);
-					  outCode.add(Integer.toString(InstructionMap.opcode.get(parts[0].toUpperCase()),16) + " " +
-					  Integer.toString(arg,16).toUpperCase() + " 1"); 
-				  } catch(NumberFormatException e) { 
-					  errors.put(i+1, "Error on line "+(i+1)+ ": direct argument is not a hex number");
-				  }
-			  } else if (parts[1].length() >= 1 && parts[1].charAt(0) != '['){
-				  if (allowsImmediate.contains(parts[0])){
-					  try{
-						  int arg = Integer.parseInt(parts[1].substring(0,parts[1].length()),16);
-						  outCode.add(Integer.toString(InstructionMap.opcode.get(parts[0].toUpperCase()),16) + " " +
-						  Integer.toString(arg,16).toUpperCase() + " 0");
-					  } catch(NumberFormatException e) { 
-						  errors.put(i+1, "Error on line "+(i+1)+ ": immediate argument is not a hex number");
-					  }
-				  } else {
-					  errors.put(i+1, "Error on line "+(i+1)+": Mnemonic does not allow immediate addressing");
-				  }
-			  } 
-		  }
-			  	  
-		  int offSet = 1+inCode.size();
-		  ArrayList<String> outData = new ArrayList<String>();
-		  
-		  
-		  for (int i = 0; i<inData.size(); i++){
-			  String[] parts = inData.get(i).trim().split("\\s+");
-			  if (parts.length != 2){
-				  errors.put((offSet+i+1),"Error in line "+(offSet+i+1)+": This is not an address/value pair");
-			  } else {
-				  int addr = -1;
-				  int val = -1;
-				  try{
-					  addr = Integer.parseInt(parts[0],16);
-					  if (addr < 0){
-						  errors.put((offSet+i+1),"Error in line"+(offSet+i+1)+": Address must be positive.");
-						  break;
-					  }
-				  }catch(NumberFormatException e){
-					  errors.put((offSet+i+1), "Error in line "+(offSet+i+1)+": Address is not a hex number");
-				  } try {
-					  val = Integer.parseInt(parts[1],16);
-				  } catch (NumberFormatException e){
-					  errors.put((offSet+i+1), "Error in line "+(offSet+1+i)+": Value is not a hex number");
-				  }
-				  outData.add(Integer.toString(addr,16).toUpperCase() + " "+ Integer.toString(val,16).toUpperCase());
-			  }	  
-		  }
-		  if(errors.size() == 0) {
-			  try (PrintWriter outp = new PrintWriter(output)){
-				  for(String str : outCode) {outp.println(str);}
-				  outp.println(-1); // the separator where the source has “DATA”
-				  for(String str : outData) {outp.println(str);}
-			  } catch (FileNotFoundException e) {
-				  errors.put(0, "Error: Unable to write the assembled program to the output file");
-			  }
-		  }
-			 return errors.size() == 0; // TRUE means there were no errors 	  
-	  }
+		 return assemble(input, output, errors, BinaryExecutable.isBinary(output));
+	 }
+
+	 /**
+	  * Same as assemble(input, output, errors) but chooses the output format
+	  * explicitly.
+	  * @param input the source assembly language file
+	  * @param output the executable to write
+	  * @param errors the errors map
+	  * @param binary true to write the binary format of BinaryExecutable,
+	  * false to write a text .pexe
+	  * @return true if there were no errors
+	  */
+	 public static boolean assemble(File input, File output, Map<Integer, String> errors, boolean binary) {
+		 if (errors == null){
+			 throw new IllegalArgumentException("Coding error: the error map is null");
+		 }
+
+		 Image image;
+		 try (BufferedReader inp = new BufferedReader(new FileReader(input))) {
+			 image = assemble(inp, errors);
+		 } catch (IOException e) {
+			 errors.put(0, "Error: Unable to open the input file");
+			 return false;
+		 }
+
+		 if(errors.size() == 0 && binary) {
+			 try {
+				 BinaryExecutable.write(output, image.code, image.codeCount, image.addresses, image.values, image.dataCount);
+			 } catch (IOException e) {
+				 errors.put(0, "Error: Unable to write the assembled program to the output file");
+			 }
+		 } else if(errors.size() == 0) {
+			 try (PrintWriter outp = new PrintWriter(output)){
+				 image.writeText(outp);
+			 } catch (FileNotFoundException e) {
+				 errors.put(0, "Error: Unable to write the assembled program to the output file");
+			 }
+		 }
+		 return errors.size() == 0; // TRUE means there were no errors
+	 }
+
+	 /**
+	  * Assembles source text straight into a Program, without writing an
+	  * executable file. The errors are the same as for assemble(input, output,
+	  * errors); a program that does not fit in the machine is reported under
+	  * the key 0.
+	  * @param name the name of the program
+	  * @param source the assembly language source
+	  * @param errors the errors map
+	  * @return the program, ready for MachineModel.setProgram, or null if
+	  * there were errors
+	  */
+	 public static Program assemble(String name, Reader source, Map<Integer, String> errors) {
+		 if (errors == null){
+			 throw new IllegalArgumentException("Coding error: the error map is null");
+		 }
+
+		 Image image;
+		 try {
+			 BufferedReader inp = source instanceof BufferedReader ? (BufferedReader)source : new BufferedReader(source);
+			 image = assemble(inp, errors);
+		 } catch (IOException e) {
+			 errors.put(0, "Error: Unable to read the source: " + e.getMessage());
+			 return null;
+		 }
+		 if (errors.size() > 0) {
+			 return null;
+		 }
+		 return image.toProgram(name, errors);
+	 }
+
+	 /**
+	  * Same as assemble(name, source, errors) for source held in a String
+	  */
+	 public static Program assemble(String name, String source, Map<Integer, String> errors) {
+		 return assemble(name, new StringReader(source), errors);
+	 }
+
+	 /**
+	  * The assembled code and data, kept as numbers until they are written.
+	  */
+	 static class Image {
+		 long[] code = new long[64];
+		 int codeCount;
+		 int[] addresses = new int[64];
+		 int[] values = new int[64];
+		 int dataCount;
+
+		 void addCode(int op, int arg, int level) {
+			 if (codeCount == code.length) {
+				 code = Arrays.copyOf(code, 2 * codeCount);
+			 }
+			 code[codeCount++] = Code.encode(op, arg, level);
+		 }
+
+		 void addData(int address, int value) {
+			 if (dataCount == addresses.length) {
+				 addresses = Arrays.copyOf(addresses, 2 * dataCount);
+				 values = Arrays.copyOf(values, 2 * dataCount);
+			 }
+			 addresses[dataCount] = address;
+			 values[dataCount++] = value;
+		 }
+
+		 /**
+		  * Decodes the image as the Loader would decode its executable
+		  * @return the program or null if it does not fit in the machine
+		  */
+		 Program toProgram(String name, Map<Integer, String> errors) {
+			 if (codeCount > Code.CODE_MAX) {
+				 errors.put(0, "Error: the program is longer than " + Code.CODE_MAX + " instructions");
+				 return null;
+			 }
+			 Code result = new Code();
+			 for (int i = 0; i < codeCount; i++) {
+				 result.setWord(code[i]);
+			 }
+			 int[] data = new int[Memory.DATA_SIZE];
+			 for (int i = 0; i < dataCount; i++) {
+				 if (addresses[i] >= Memory.DATA_SIZE) {
+					 errors.put(0, "Error: address " + Integer.toString(addresses[i], 16).toUpperCase() + " is outside data memory");
+					 return null;
+				 }
+				 data[addresses[i]] = values[i];
+			 }
+			 return new Program(name, result, data);
+		 }
+
+		 /**
+		  * Writes the text .pexe format: opcode in lower case hex, argument in
+		  * upper case hex and the level on each code line, then -1, then the
+		  * address and value of each data line in upper case hex.
+		  */
+		 void writeText(PrintWriter outp) {
+			 char[] buffer = new char[32];
+			 for (int i = 0; i < codeCount; i++) {
+				 int n = appendHex(buffer, 0, Code.op(code[i]), false);
+				 buffer[n++] = ' ';
+				 n = appendHex(buffer, n, Code.arg(code[i]), true);
+				 buffer[n++] = ' ';
+				 n = appendHex(buffer, n, Code.level(code[i]), false);
+				 outp.write(buffer, 0, n);
+				 outp.println();
+			 }
+			 outp.println(-1); // the separator where the source has “DATA”
+			 for (int i = 0; i < dataCount; i++) {
+				 int n = appendHex(buffer, 0, addresses[i], true);
+				 buffer[n++] = ' ';
+				 n = appendHex(buffer, n, values[i], true);
+				 outp.write(buffer, 0, n);
+				 outp.println();
+			 }
+		 }
+
+		 /**
+		  * Writes value as Integer.toString(value, 16) does, in upper case if asked
+		  * @return the position after the last character written
+		  */
+		 private static int appendHex(char[] buffer, int start, int value, boolean upper) {
+			 long magnitude = Math.abs((long)value);
+			 if (value < 0) {
+				 buffer[start++] = '-';
+			 }
+			 int digits = 1;
+			 while ((magnitude >>> (4 * digits)) != 0) {
+				 digits++;
+			 }
+			 for (int i = digits - 1; i >= 0; i--) {
+				 int digit = (int)(magnitude >>> (4 * i)) & 0xF;
+				 buffer[start++] = (char)(digit < 10 ? '0' + digit : (upper ? 'A' : 'a') + digit - 10);
+			 }
+			 return start;
+		 }
+	 }
+
+	 /**
+	  * Assembles the source in a single pass over its lines. The errors are the
+	  * same as the original multi-pass assembler produced:
+	  * <ul>
+	  * <li>every non-blank line starting with white space is reported;
+	  * <li>a blank line followed later by a non-blank line is reported and
+	  * nothing else is assembled;
+	  * <li>the lines before the first "DATA" line are code, but without a
+	  * "DATA" line the last line of the file is ignored;
+	  * <li>some errors stop the assembly of the rest of the code or data.
+	  * </ul>
+	  * Code lines are assembled one line late, once it is known that the
+	  * file continues after them.
+	  * @param input the source lines
+	  * @param errors the errors map
+	  * @return the assembled image, only meaningful if no errors were added
+	  * @throws IOException if the source cannot be read
+	  */
+	 static Image assemble(BufferedReader input, Map<Integer, String> errors) throws IOException {
+		 Image image = new Image();
+		 // errors other than white space ones are dropped if there is an illegal blank line
+		 Map<Integer, String> lineErrors = new TreeMap<>();
+		 String[] parts = new String[2];
+		 int firstBlank = -1;
+		 boolean blankError = false;
+		 boolean inData = false;
+		 boolean codeStopped = false;
+		 boolean dataStopped = false;
+		 String pendingCode = null;
+		 int i = -1; // index of the current line, line number i+1
+
+		 String line;
+		 while ((line = input.readLine()) != null) {
+			 i++;
+			 String trimmed = line.trim();
+			 boolean blank = trimmed.length() == 0;
+			 if (!blank && (line.charAt(0) == ' ' || line.charAt(0) == '\t')){
+				 errors.put(i+1, "Error on line " + (i+1) + ": starts with white space");
+			 }
+			 if (blank && firstBlank < 0) {
+				 firstBlank = i;
+			 } else if (!blank && firstBlank >= 0 && !blankError) {
+				 blankError = true;
+			 }
+			 if (blankError) {
+				 continue;
+			 }
+
+			 if (inData) {
+				 if (!dataStopped) {
+					 dataStopped = !assembleData(trimmed, i+1, parts, image, lineErrors);
+				 }
+			 } else {
+				 if (pendingCode != null && !codeStopped) {
+					 codeStopped = !assembleCode(pendingCode, i-1, parts, image, lineErrors);
+				 }
+				 pendingCode = null;
+				 if (trimmed.equals("DATA")) {
+					 inData = true;
+				 } else {
+					 if (trimmed.equalsIgnoreCase("DATA")) {
+						 lineErrors.put(i+1, "Error in line "+i+1+": DATA must be in caps.");
+					 }
+					 pendingCode = trimmed;
+				 }
+			 }
+		 }
+		 // without DATA the last line, still pending, is not part of the code
+
+		 if (blankError) {
+			 errors.put(firstBlank+1, "Error on line " + (firstBlank+1) + ": illegal blank line");
+		 } else {
+			 errors.putAll(lineErrors);
+		 }
+		 return image;
+	 }
+
+	 /**
+	  * Splits a trimmed line at white space, like split("\\s+"). The first two
+	  * parts are stored in parts.
+	  * @return the number of parts, 1 for an empty line
+	  */
+	 private static int split(String trimmed, String[] parts) {
+		 int count = 0;
+		 int length = trimmed.length();
+		 int start = 0;
+		 while (start <= length) {
+			 int end = start;
+			 while (end < length && !isWhiteSpace(trimmed.charAt(end))) {
+				 end++;
+			 }
+			 if (count < parts.length) {
+				 parts[count] = trimmed.substring(start, end);
+			 }
+			 count++;
+			 start = end;
+			 while (start < length && isWhiteSpace(trimmed.charAt(start))) {
+				 start++;
+			 }
+			 if (start == end) {
+				 break;
+			 }
+		 }
+		 return count;
+	 }
+
+	 private static boolean isWhiteSpace(char c) {
+		 return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	 }
+
+	 /**
+	  * Assembles the code line with index i
+	  * @return false if the rest of the code should not be assembled
+	  */
+	 private static boolean assembleCode(String trimmed, int i, String[] parts, Image image, Map<Integer, String> errors) {
+		 int count = split(trimmed, parts);
+		 String mnemonic = parts[0];
+		 if(!InstructionMap.opcode.containsKey(mnemonic.toUpperCase())){
+			 errors.put(i+1, "Error in line "+(i+1)+": Illegal mnemonic.");
+			 return false;
+		 } else if(!InstructionMap.opcode.containsKey(mnemonic)){
+			 errors.put(i+1, "Error in line "+(i+1)+": Mnemonics must be uppercase");
+			 return false;
+		 }
+		 int op = InstructionMap.opcode.get(mnemonic);
+
+		 if (noArgument.contains(mnemonic)){
+			 if(count == 1){
+				 image.addCode(op, 0, 0);
+			 } else{
+				 errors.put(i+1, "Error in line "+(i+1)+": Mnemonic doesn't take arguments");
+			 }
+		 } else if (count < 2){
+			 errors.put(i+1, "Error on line "+(i+1)+": No argument provided for mnemonic.");
+			 return false;
+		 } else if (count > 2){
+			 errors.put(i+1, "Error in line "+(i+1)+": Mnemonic contains too many arguments");
+		 } else {
+			 String argument = parts[1];
+			 if (argument.length() >= 3 && argument.charAt(0) == '[' && argument.charAt(1) == '['){
+				 if (allowsIndirect.contains(mnemonic)){
+					 try{
+						 image.addCode(op, Integer.parseInt(argument.substring(2), 16), 2);
+					 } catch(NumberFormatException e) {
+						 errors.put(i+1, "Error on line "+(i+1)+ ": indirect argument is not a hex number");
+					 }
+				 } else {
+					 errors.put(i+1, "Error in line "+i+1+": Mnemonic does not allow Indirect addressing");
+				 }
+			 } else if (argument.length() >= 2 && argument.charAt(0) == '['){
+				 try{
+					 image.addCode(op, Integer.parseInt(argument.substring(1), 16), 1);
+				 } catch(NumberFormatException e) {
+					 errors.put(i+1, "Error on line "+(i+1)+ ": direct argument is not a hex number");
+				 }
+			 } else if (argument.length() >= 1 && argument.charAt(0) != '['){
+				 if (allowsImmediate.contains(mnemonic)){
+					 try{
+						 image.addCode(op, Integer.parseInt(argument, 16), 0);
+					 } catch(NumberFormatException e) {
+						 errors.put(i+1, "Error on line "+(i+1)+ ": immediate argument is not a hex number");
+					 }
+				 } else {
+					 errors.put(i+1, "Error on line "+(i+1)+": Mnemonic does not allow immediate addressing");
+				 }
+			 }
+		 }
+		 return true;
+	 }
+
+	 /**
+	  * Assembles a data line
+	  * @return false if the rest of the data should not be assembled
+	  */
+	 private static boolean assembleData(String trimmed, int lineNumber, String[] parts, Image image, Map<Integer, String> errors) {
+		 if (split(trimmed, parts) != 2){
+			 errors.put(lineNumber,"Error in line "+lineNumber+": This is not an address/value pair");
+			 return true;
+		 }
+		 int addr = -1;
+		 int val = -1;
+		 try{
+			 addr = Integer.parseInt(parts[0],16);
+			 if (addr < 0){
+				 errors.put(lineNumber,"Error in line"+lineNumber+": Address must be positive.");
+				 return false;
+			 }
+		 }catch(NumberFormatException e){
+			 errors.put(lineNumber, "Error in line "+lineNumber+": Address is not a hex number");
+		 }
+		 try {
+			 val = Integer.parseInt(parts[1],16);
+		 } catch (NumberFormatException e){
+			 errors.put(lineNumber, "Error in line "+lineNumber+": Value is not a hex number");
+		 }
+		 image.addData(addr, val);
+		 return true;
+	 }
 }
@@ -0,0 +1,130 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AssemblerTester {
+
+    File source;
+    File output;
+    Map<Integer, String> errors = new TreeMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        source = File.createTempFile("tester", ".pasm");
+        output = File.createTempFile("tester", ".pexe");
+        output.delete();
+    }
+
+    @After
+    public void cleanup() {
+        source.delete();
+        output.delete();
+    }
+
+    private boolean assemble(String text) throws IOException {
+        Files.write(source.toPath(), text.getBytes());
+        return Assembler.assemble(source, output, errors);
+    }
+
+    private String outputText() throws IOException {
+        return new String(Files.readAllBytes(output.toPath())).replace(System.lineSeparator(), "\n");
+    }
+
+    @Test
+    // Test the executable text of a correct program
+    public void testAssembleCorrect() throws IOException {
+        assertTrue(assemble("LOD 1C\nSTO [[A\nJUMP -2\nROT [10\nHALT\nDATA\n1f -B\n0 7\n"));
+        assertEquals("1 1C 0\n2 A 2\nb -2 0\n14 10 1\nf 0 0\n-1\n1F -B\n0 7\n", outputText());
+    }
+
+    @Test
+    // Test every line starting with white space is reported
+    public void testWhiteSpace() throws IOException {
+        assertFalse(assemble("LOD 1\n STO [2\n\tHALT\nDATA\n"));
+        assertEquals("Error on line 2: starts with white space", errors.get(2));
+        assertEquals("Error on line 3: starts with white space", errors.get(3));
+        assertEquals(2, errors.size());
+    }
+
+    @Test
+    // Test an illegal blank line hides the other errors but not the white space ones
+    public void testBlankLine() throws IOException {
+        assertFalse(assemble("FOO 1\n\nLOD 1\n HALT\n"));
+        assertEquals("Error on line 2: illegal blank line", errors.get(2));
+        assertEquals("Error on line 4: starts with white space", errors.get(4));
+        assertEquals(2, errors.size());
+    }
+
+    @Test
+    // Test blank lines at the end of the file are allowed
+    public void testTrailingBlankLines() throws IOException {
+        assertTrue(assemble("HALT\nDATA\n0 1"));
+        assertEquals("f 0 0\n-1\n0 1\n", outputText());
+    }
+
+    @Test
+    // Test without DATA the last line is not assembled
+    public void testNoData() throws IOException {
+        assertTrue(assemble("LOD 1\nHALT\n"));
+        assertEquals("1 1 0\n-1\n", outputText());
+    }
+
+    @Test
+    // Test the addressing mode errors
+    public void testAddressingErrors() throws IOException {
+        assertFalse(assemble("AND [[3\nSTO 4\nLOD [Q\nNOT 1\nDATA\n"));
+        assertEquals("Error in line 01: Mnemonic does not allow Indirect addressing", errors.get(1));
+        assertEquals("Error on line 2: Mnemonic does not allow immediate addressing", errors.get(2));
+        assertEquals("Error on line 3: direct argument is not a hex number", errors.get(3));
+        assertEquals("Error in line 4: Mnemonic doesn't take arguments", errors.get(4));
+    }
+
+    @Test
+    // Test an illegal mnemonic stops the code but not the data
+    public void testIllegalMnemonic() throws IOException {
+        assertFalse(assemble("lod 1\nFOO 2\ndata\nDATA\n3\n"));
+        assertEquals("Error in line 1: Mnemonics must be uppercase", errors.get(1));
+        assertEquals("Error in line 21: DATA must be in caps.", errors.get(3));
+        assertEquals("Error in line 5: This is not an address/value pair", errors.get(5));
+        assertEquals(3, errors.size());
+    }
+
+    @Test
+    // Test assembling in memory gives the same program as assembling and loading the file
+    public void testAssembleInMemory() throws IOException {
+        String text = "LOD 1C\nSTO [[A\nJUMP -2\nHALT\nDATA\n1f -B\n0 7\n";
+        Program program = Assembler.assemble("test", text, errors);
+        assertEquals(0, errors.size());
+        assertTrue(assemble(text));
+        Program loaded = Program.load(output, errors);
+        assertEquals(loaded.getCode().getProgramSize(), program.getCode().getProgramSize());
+        for (int i = 0; i < program.getCode().getProgramSize(); i++) {
+            assertEquals(loaded.getCode().fetch(i), program.getCode().fetch(i));
+        }
+        for (int i = 0; i < Memory.DATA_SIZE; i++) {
+            assertEquals(loaded.getData(i), program.getData(i));
+        }
+    }
+
+    @Test
+    // Test assembling in memory reports the errors and data outside memory
+    public void testAssembleInMemoryErrors() throws IOException {
+        assertEquals(null, Assembler.assemble("test", "LOD 1\n HALT\nDATA\n", errors));
+        assertEquals("Error on line 2: starts with white space", errors.get(2));
+        errors.clear();
+        assertEquals(null, Assembler.assemble("test", "HALT\nDATA\n" + Integer.toString(Memory.DATA_SIZE, 16) + " 1\n", errors));
+        assertTrue(errors.get(0).contains("outside data memory"));
+    }
+}
@@ -0,0 +1,123 @@
+package pippin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * The binary executable format, a compact alternative to the text .pexe.
+ * All values are big-endian:
+ * <pre>
+ *   int  MAGIC ("PBIN")
+ *   int  VERSION
+ *   int  number of instructions n
+ *   int  number of data entries m
+ *   n x long  instructions, packed as by Code.encode
+ *   m x (int address, int value)  data entries, applied in order
+ * </pre>
+ * Files are read through a memory-mapped buffer, so loading does no parsing
+ * beyond copying the words into Code and Memory.
+ */
+public class BinaryExecutable {
+	public static final String EXTENSION = "pbin";
+	public static final int MAGIC = 0x5042494E;
+	public static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+
+	public static boolean isBinary(File file) {
+		return file.getName().endsWith("." + EXTENSION);
+	}
+
+	/**
+	 * Writes an executable.
+	 * @param output the file to write
+	 * @param code the packed instructions
+	 * @param codeCount how many of the instructions to write
+	 * @param addresses the data addresses
+	 * @param values the data values, matching addresses
+	 * @param dataCount how many data entries to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(File output, long[] code, int codeCount, int[] addresses, int[] values, int dataCount)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * codeCount + 8 * dataCount);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(codeCount).putInt(dataCount);
+		for(int i = 0; i < codeCount; i++) {
+			buffer.putLong(code[i]);
+		}
+		for(int i = 0; i < dataCount; i++) {
+			buffer.putInt(addresses[i]).putInt(values[i]);
+		}
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Loads an executable. Problems are reported in the errors map with the
+	 * key 0, as there are no lines in a binary file.
+	 * @param model the machine that receives the data values
+	 * @param code the code object that receives the instructions
+	 * @param file the executable file
+	 * @param errors the errors map
+	 * @return true if the whole file was loaded
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean load(MachineModel model, Code code, File file, Map<Integer, String> errors) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		return load(model, code, buffer, errors);
+	}
+
+	/**
+	 * Loads an executable that is already in memory, from the buffer's
+	 * position to its limit.
+	 * @param model the machine that receives the data values
+	 * @param code the code object that receives the instructions
+	 * @param buffer the contents of the executable
+	 * @param errors the errors map, as for load(model, code, file, errors)
+	 * @return true if the whole executable was loaded
+	 */
+	public static boolean load(MachineModel model, Code code, ByteBuffer buffer, Map<Integer, String> errors) {
+		try {
+			if(buffer.getInt() != MAGIC) {
+				errors.put(0, "Not a Pippin binary executable");
+				return false;
+			}
+			int version = buffer.getInt();
+			if(version != VERSION) {
+				errors.put(0, "Unsupported binary executable version " + version);
+				return false;
+			}
+			int codeCount = buffer.getInt();
+			int dataCount = buffer.getInt();
+			if(codeCount < 0 || dataCount < 0 || buffer.remaining() != 8L * codeCount + 8L * dataCount) {
+				errors.put(0, "Binary executable has the wrong size");
+				return false;
+			}
+			for(int i = 0; i < codeCount; i++) {
+				code.setWord(buffer.getLong());
+			}
+			for(int i = 0; i < dataCount; i++) {
+				int address = buffer.getInt();
+				model.setData(address, buffer.getInt());
+			}
+		} catch (BufferUnderflowException e) {
+			errors.put(0, "Binary executable is truncated");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			errors.put(0, e.getMessage());
+		}
+		return errors.size() == 0;
+	}
+}
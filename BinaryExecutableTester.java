@@ -0,0 +1,131 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryExecutableTester {
+
+    File source;
+    File text;
+    File binary;
+    Map<Integer, String> errors = new TreeMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        source = File.createTempFile("tester", ".pasm");
+        text = File.createTempFile("tester", ".pexe");
+        binary = File.createTempFile("tester", "." + BinaryExecutable.EXTENSION);
+    }
+
+    @After
+    public void cleanup() {
+        source.delete();
+        text.delete();
+        binary.delete();
+    }
+
+    private long[] words(Code code) {
+        long[] words = new long[code.getProgramSize()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = code.fetch(i);
+        }
+        return words;
+    }
+
+    private boolean load(ByteBuffer contents) throws IOException {
+        Files.write(binary.toPath(), contents.array());
+        return BinaryExecutable.load(new MachineModel(), new Code(), binary, errors);
+    }
+
+    @Test
+    // Test a binary executable loads as the text executable of the same source does
+    public void testRoundTrip() throws IOException {
+        Files.write(source.toPath(), "LOD 1C\nSTO [[A\nJUMP -2\nROT [10\nADD 7FFFFFFF\nHALT\nDATA\n1f -B\n0 7\n1FF 80\n".getBytes());
+        assertTrue(Assembler.assemble(source, text, errors));
+        assertTrue(Assembler.assemble(source, binary, errors));
+
+        MachineModel fromText = new MachineModel();
+        Code textCode = new Code();
+        assertTrue(Loader.load(fromText, textCode, text, errors));
+        MachineModel fromBinary = new MachineModel();
+        Code binaryCode = new Code();
+        assertTrue(Loader.load(fromBinary, binaryCode, binary, errors));
+
+        assertEquals(6, binaryCode.getProgramSize());
+        assertArrayEquals(words(textCode), words(binaryCode));
+        assertArrayEquals(fromText.getData(), fromBinary.getData());
+        assertEquals(-0xB, fromBinary.getData(0x1F));
+        assertEquals(0x80, fromBinary.getData(0x1FF));
+        assertEquals(16 + 6 * 8 + 3 * 8, binary.length());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    // Test a file that does not start with the magic number
+    public void testBadMagic() throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(16);
+        contents.putInt(0x50455845).putInt(BinaryExecutable.VERSION).putInt(0).putInt(0);
+        assertFalse(load(contents));
+        assertEquals("Not a Pippin binary executable", errors.get(0));
+    }
+
+    @Test
+    // Test an unknown version
+    public void testBadVersion() throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(16);
+        contents.putInt(BinaryExecutable.MAGIC).putInt(BinaryExecutable.VERSION + 1).putInt(0).putInt(0);
+        assertFalse(load(contents));
+        assertEquals("Unsupported binary executable version 2", errors.get(0));
+    }
+
+    @Test
+    // Test a file that ends inside the header
+    public void testTruncated() throws IOException {
+        BinaryExecutable.write(binary, new long[] {Code.encode(0xF, 0, 0)}, 1, new int[0], new int[0], 0);
+        byte[] contents = Files.readAllBytes(binary.toPath());
+        Files.write(binary.toPath(), Arrays.copyOf(contents, 10));
+        assertFalse(BinaryExecutable.load(new MachineModel(), new Code(), binary, errors));
+        assertEquals("Binary executable is truncated", errors.get(0));
+    }
+
+    @Test
+    // Test section sizes that do not match the rest of the file
+    public void testWrongSectionSizes() throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(16 + 8);
+        contents.putInt(BinaryExecutable.MAGIC).putInt(BinaryExecutable.VERSION).putInt(2).putInt(0);
+        contents.putLong(Code.encode(0xF, 0, 0));
+        assertFalse(load(contents));
+        assertEquals("Binary executable has the wrong size", errors.get(0));
+
+        errors.clear();
+        contents = ByteBuffer.allocate(16 + 8);
+        contents.putInt(BinaryExecutable.MAGIC).putInt(BinaryExecutable.VERSION).putInt(-1).putInt(2);
+        contents.putLong(0);
+        assertFalse(load(contents));
+        assertEquals("Binary executable has the wrong size", errors.get(0));
+    }
+
+    @Test
+    // Test a data address outside memory
+    public void testBadAddress() throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate(16 + 8);
+        contents.putInt(BinaryExecutable.MAGIC).putInt(BinaryExecutable.VERSION).putInt(0).putInt(1);
+        contents.putInt(Memory.DATA_SIZE).putInt(5);
+        assertFalse(load(contents));
+        assertEquals(1, errors.size());
+    }
+}
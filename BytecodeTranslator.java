@@ -0,0 +1,563 @@
+package pippin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Translates a Code into a hidden class implementing TranslatedCode, so that
+ * the JIT compiles the PIPPIN program itself. The run method is a loop over
+ * a tableswitch on the program counter with the accumulator, program counter
+ * and step count in local variables; consecutive instructions fall through
+ * to each other and jumps to constant targets are gotos.
+ * <p>
+ * Only instructions that cannot fail are translated: the immediate and
+ * direct forms of the arithmetic, logic, compare and jump instructions whose
+ * direct addresses are inside data memory, HALT, and DIV when its divisor
+ * is not zero. For anything else, run returns STATUS_FALLBACK with the
+ * program counter at the instruction, which the interpreter then executes,
+ * so the results and exceptions are exactly those of MachineModel.step().
+ * <p>
+ * The class file is written by hand, in the version 49 format that needs
+ * no stack map frames.
+ */
+final class BytecodeTranslator {
+	private static final int NOP = 0x0;
+	private static final int LOD = 0x1;
+	private static final int STO = 0x2;
+	private static final int ADD = 0x3;
+	private static final int SUB = 0x4;
+	private static final int MUL = 0x5;
+	private static final int DIV = 0x6;
+	private static final int AND = 0x7;
+	private static final int NOT = 0x8;
+	private static final int CMPZ = 0x9;
+	private static final int CMPL = 0xA;
+	private static final int JUMP = 0xB;
+	private static final int JMPZ = 0xC;
+	private static final int HALT = 0xF;
+
+	// local variables of the generated run method
+	private static final int DATA = 1;
+	private static final int REGISTERS = 2;
+	private static final int MAX_STEPS = 3; // a long, 2 slots
+	private static final int ACC = 5;
+	private static final int PC = 6;
+	private static final int STEPS = 7; // a long, 2 slots
+	private static final int LAST = 9;
+	private static final int STATUS = 10;
+	private static final int TEMP = 11;
+	private static final int LOCALS = 12;
+
+	private static final String CLASS_NAME = "pippin/TranslatedProgram";
+
+	/**
+	 * A translated program and the addresses it can store to
+	 */
+	static final class Translation {
+		final TranslatedCode code;
+		/** every direct STO address in the program, reported as changed after a run */
+		final int[] storeTargets;
+
+		Translation(TranslatedCode code, int[] storeTargets) {
+			this.code = code;
+			this.storeTargets = storeTargets;
+		}
+	}
+
+	private BytecodeTranslator() {
+	}
+
+	/**
+	 * Translates the code and loads the translation as a hidden class
+	 * @param code the program
+	 * @return the translation
+	 */
+	static Translation translate(Code code) {
+		int size = code.getProgramSize();
+		long[] words = new long[size];
+		TreeSet<Integer> stores = new TreeSet<>();
+		for (int i = 0; i < size; i++) {
+			words[i] = code.fetch(i);
+			if (translatable(words[i]) && Code.op(words[i]) == STO) {
+				stores.add(Code.arg(words[i]));
+			}
+		}
+		byte[] classFile = new BytecodeTranslator().classFile(words);
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+			TranslatedCode translated = (TranslatedCode)lookup.findConstructor(lookup.lookupClass(),
+					MethodType.methodType(void.class)).invoke();
+			return new Translation(translated, stores.stream().mapToInt(Integer::intValue).toArray());
+		} catch (Throwable e) {
+			throw new IllegalStateException("Coding error: the translated program could not be loaded", e);
+		}
+	}
+
+	/**
+	 * @return true if the instruction is translated rather than left to the
+	 * interpreter
+	 */
+	static boolean translatable(long word) {
+		int op = Code.op(word);
+		int level = Code.level(word);
+		boolean direct = level == 1 && Code.arg(word) >= 0 && Code.arg(word) < Memory.DATA_SIZE;
+		switch (op) {
+		case HALT:
+			return true;
+		case NOP:
+		case NOT:
+			return level == 0;
+		case STO:
+		case CMPZ:
+		case CMPL:
+			return direct;
+		case LOD:
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case AND:
+		case JUMP:
+		case JMPZ:
+			return level == 0 || direct;
+		default:
+			return false;
+		}
+	}
+
+	// the constant pool
+	private ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private Map<String, Integer> poolIndex = new HashMap<>();
+	private int poolCount = 1;
+
+	// the code of the method being written
+	private ByteArrayOutputStream codeBytes;
+	private List<int[]> jumps; // {position of the offset, position of the instruction, label, wide}
+	private int[] labels;
+
+	private int constant(String key, int tag, byte[] contents) {
+		Integer index = poolIndex.get(key);
+		if (index == null) {
+			index = poolCount++;
+			poolBytes.write(tag);
+			poolBytes.write(contents, 0, contents.length);
+			poolIndex.put(key, index);
+		}
+		return index;
+	}
+
+	private int utf8(String text) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			new DataOutputStream(bytes).writeUTF(text);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return constant("U" + text, 1, bytes.toByteArray());
+	}
+
+	private int integer(int value) {
+		return constant("I" + value, 3, new byte[] {(byte)(value >> 24), (byte)(value >> 16), (byte)(value >> 8), (byte)value});
+	}
+
+	private int classRef(String name) {
+		int nameIndex = utf8(name);
+		return constant("C" + name, 7, new byte[] {(byte)(nameIndex >> 8), (byte)nameIndex});
+	}
+
+	private int methodRef(String owner, String name, String descriptor) {
+		int classIndex = classRef(owner);
+		int nameIndex = utf8(name);
+		int typeIndex = utf8(descriptor);
+		int nameAndType = constant("N" + name + descriptor, 12,
+				new byte[] {(byte)(nameIndex >> 8), (byte)nameIndex, (byte)(typeIndex >> 8), (byte)typeIndex});
+		return constant("M" + owner + "." + name + descriptor, 10,
+				new byte[] {(byte)(classIndex >> 8), (byte)classIndex, (byte)(nameAndType >> 8), (byte)nameAndType});
+	}
+
+	private byte[] classFile(long[] words) {
+		int thisClass = classRef(CLASS_NAME);
+		int superClass = classRef("java/lang/Object");
+		int anInterface = classRef("pippin/TranslatedCode");
+		int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+		int codeName = utf8("Code");
+		int initName = utf8("<init>");
+		int initType = utf8("()V");
+		int runName = utf8("run");
+		int runType = utf8("([I[IJ)J");
+
+		byte[] init = {0x2a, (byte)0xb7, (byte)(objectInit >> 8), (byte)objectInit, (byte)0xb1}; // aload_0, invokespecial, return
+		byte[] run = runMethod(words);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(poolCount);
+			poolBytes.writeTo(out);
+			out.writeShort(0x0030); // final, super
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(anInterface);
+			out.writeShort(0); // fields
+			out.writeShort(2); // methods
+			method(out, initName, initType, codeName, 1, 1, init);
+			method(out, runName, runType, codeName, 8, LOCALS, run);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void method(DataOutputStream out, int name, int type, int codeName, int maxStack, int maxLocals, byte[] code)
+			throws IOException {
+		out.writeShort(0x0001); // public
+		out.writeShort(name);
+		out.writeShort(type);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0); // exception table
+		out.writeShort(0); // attributes
+	}
+
+	// labels for the run method; instruction i has label i
+	private int dispatchLabel;
+	private int budgetExit;
+	private int fallbackExit;
+	private int exit;
+
+	private byte[] runMethod(long[] words) {
+		int size = words.length;
+		codeBytes = new ByteArrayOutputStream();
+		jumps = new ArrayList<>();
+		labels = new int[size + 4];
+		Arrays.fill(labels, -1);
+		dispatchLabel = size;
+		budgetExit = size + 1;
+		fallbackExit = size + 2;
+		exit = size + 3;
+
+		// load the registers
+		loadRegister(TranslatedCode.ACCUMULATOR);
+		store(ACC);
+		loadRegister(TranslatedCode.PROGRAM_COUNTER);
+		store(PC);
+		loadRegister(TranslatedCode.LAST_STORE);
+		store(LAST);
+		emit(0x09); // lconst_0
+		emit(0x37, STEPS); // lstore
+		push(0);
+		store(STATUS);
+		push(0);
+		store(TEMP);
+
+		mark(dispatchLabel);
+		load(PC);
+		if (size == 0) {
+			emit(0x57); // pop
+			jump(0xa7, fallbackExit);
+		} else {
+			tableswitch(size);
+		}
+
+		for (int i = 0; i < size; i++) {
+			mark(i);
+			push(i);
+			store(PC);
+			if (!translatable(words[i])) {
+				jump(0xa7, fallbackExit);
+				continue;
+			}
+			// stop when the budget is used up
+			emit(0x16, STEPS); // lload
+			emit(0x16, MAX_STEPS);
+			emit(0x94); // lcmp
+			jump(0x9c, budgetExit); // ifge
+			instruction(i, words[i], size);
+		}
+		// falling off the end of the program
+		push(size);
+		store(PC);
+		jump(0xa7, fallbackExit);
+
+		mark(budgetExit);
+		push(TranslatedCode.STATUS_BUDGET);
+		store(STATUS);
+		jump(0xa7, exit);
+		mark(fallbackExit);
+		push(TranslatedCode.STATUS_FALLBACK);
+		store(STATUS);
+		mark(exit);
+		storeRegister(TranslatedCode.ACCUMULATOR, ACC);
+		storeRegister(TranslatedCode.PROGRAM_COUNTER, PC);
+		storeRegister(TranslatedCode.STATUS, STATUS);
+		storeRegister(TranslatedCode.LAST_STORE, LAST);
+		emit(0x16, STEPS);
+		emit(0xad); // lreturn
+
+		byte[] code = codeBytes.toByteArray();
+		for (int[] jump : jumps) {
+			int offset = labels[jump[2]] - jump[1];
+			if (jump[3] == 1) {
+				code[jump[0]] = (byte)(offset >> 24);
+				code[jump[0] + 1] = (byte)(offset >> 16);
+				code[jump[0] + 2] = (byte)(offset >> 8);
+				code[jump[0] + 3] = (byte)offset;
+			} else {
+				if (offset != (short)offset) {
+					throw new IllegalStateException("Coding error: the translated program is too long");
+				}
+				code[jump[0]] = (byte)(offset >> 8);
+				code[jump[0] + 1] = (byte)offset;
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Writes one translated instruction. The program counter local already
+	 * holds its address.
+	 */
+	private void instruction(int i, long word, int size) {
+		int op = Code.op(word);
+		int arg = Code.arg(word);
+		boolean direct = Code.level(word) == 1;
+		switch (op) {
+		case NOP:
+			countStep();
+			break;
+		case LOD:
+			countStep();
+			operand(arg, direct);
+			store(ACC);
+			break;
+		case STO:
+			countStep();
+			load(DATA);
+			push(arg);
+			load(ACC);
+			emit(0x4f); // iastore
+			push(arg);
+			store(LAST);
+			break;
+		case ADD:
+		case SUB:
+		case MUL:
+			countStep();
+			load(ACC);
+			operand(arg, direct);
+			emit(op == ADD ? 0x60 : op == SUB ? 0x64 : 0x68); // iadd, isub, imul
+			store(ACC);
+			break;
+		case DIV:
+			// division by zero is left to the interpreter, before counting the step
+			operand(arg, direct);
+			store(TEMP);
+			load(TEMP);
+			jump(0x99, fallbackExit); // ifeq
+			countStep();
+			load(ACC);
+			load(TEMP);
+			emit(0x6c); // idiv
+			store(ACC);
+			break;
+		case AND: {
+			countStep();
+			int zero = newLabel();
+			int done = newLabel();
+			operand(arg, direct);
+			store(TEMP); // the operand is read first, as in the interpreter
+			load(ACC);
+			jump(0x99, zero); // ifeq
+			load(TEMP);
+			jump(0x99, zero);
+			push(1);
+			jump(0xa7, done);
+			mark(zero);
+			push(0);
+			mark(done);
+			store(ACC);
+			break;
+		}
+		case NOT:
+			countStep();
+			load(ACC);
+			test(0x9a); // ifne
+			store(ACC);
+			break;
+		case CMPZ:
+		case CMPL:
+			countStep();
+			operand(arg, true);
+			test(op == CMPZ ? 0x9a : 0x9c); // ifne, ifge
+			store(ACC);
+			break;
+		case JUMP:
+			countStep();
+			operand(arg, direct);
+			store(PC);
+			goTo(arg, direct, size);
+			break;
+		case JMPZ: {
+			countStep();
+			int notTaken = newLabel();
+			operand(arg, direct);
+			store(TEMP); // the target is read before the test, as in the interpreter
+			load(ACC);
+			jump(0x9a, notTaken); // ifne
+			load(TEMP);
+			store(PC);
+			goTo(arg, direct, size);
+			mark(notTaken);
+			break;
+		}
+		case HALT:
+			countStep();
+			push(TranslatedCode.STATUS_HALTED);
+			store(STATUS);
+			jump(0xa7, exit);
+			break;
+		default:
+			throw new IllegalStateException("Coding error: opcode " + op + " cannot be translated");
+		}
+	}
+
+	/**
+	 * Continues at the instruction now in the program counter local
+	 */
+	private void goTo(int arg, boolean direct, int size) {
+		if (direct) {
+			jump(0xa7, dispatchLabel);
+		} else if (arg >= 0 && arg < size) {
+			jump(0xa7, arg);
+		} else {
+			jump(0xa7, fallbackExit); // the interpreter reports the bad address
+		}
+	}
+
+	/**
+	 * Pushes 1 if the value on the stack fails the test, 0 if it passes
+	 */
+	private void test(int opcode) {
+		int zero = newLabel();
+		int done = newLabel();
+		jump(opcode, zero);
+		push(1);
+		jump(0xa7, done);
+		mark(zero);
+		push(0);
+		mark(done);
+	}
+
+	private void operand(int arg, boolean direct) {
+		if (direct) {
+			load(DATA);
+			push(arg);
+			emit(0x2e); // iaload
+		} else {
+			push(arg);
+		}
+	}
+
+	private void countStep() {
+		emit(0x16, STEPS); // lload
+		emit(0x0a); // lconst_1
+		emit(0x61); // ladd
+		emit(0x37, STEPS); // lstore
+	}
+
+	private void loadRegister(int index) {
+		load(REGISTERS);
+		push(index);
+		emit(0x2e); // iaload
+	}
+
+	private void storeRegister(int index, int local) {
+		load(REGISTERS);
+		push(index);
+		load(local);
+		emit(0x4f); // iastore
+	}
+
+	private void load(int local) {
+		emit(local == DATA || local == REGISTERS ? 0x19 : 0x15, local); // aload, iload
+	}
+
+	private void store(int local) {
+		emit(0x36, local); // istore
+	}
+
+	private void push(int value) {
+		if (value >= -1 && value <= 5) {
+			emit(0x03 + value); // iconst
+		} else if (value == (byte)value) {
+			emit(0x10, value & 0xFF); // bipush
+		} else if (value == (short)value) {
+			emit(0x11);
+			emit((value >> 8) & 0xFF);
+			emit(value & 0xFF);
+		} else {
+			int index = integer(value);
+			emit(0x13); // ldc_w
+			emit(index >> 8);
+			emit(index & 0xFF);
+		}
+	}
+
+	private void emit(int... bytes) {
+		for (int b : bytes) {
+			codeBytes.write(b);
+		}
+	}
+
+	private int newLabel() {
+		labels = Arrays.copyOf(labels, labels.length + 1);
+		labels[labels.length - 1] = -1;
+		return labels.length - 1;
+	}
+
+	private void mark(int label) {
+		labels[label] = codeBytes.size();
+	}
+
+	private void jump(int opcode, int label) {
+		int position = codeBytes.size();
+		emit(opcode);
+		jumps.add(new int[] {codeBytes.size(), position, label, 0});
+		emit(0, 0);
+	}
+
+	private void tableswitch(int size) {
+		int position = codeBytes.size();
+		emit(0xaa);
+		while (codeBytes.size() % 4 != 0) {
+			emit(0);
+		}
+		jumps.add(new int[] {codeBytes.size(), position, fallbackExit, 1});
+		emit(0, 0, 0, 0);
+		emit(0, 0, 0, 0); // low = 0
+		emit((size - 1) >> 24, (size - 1) >> 16 & 0xFF, (size - 1) >> 8 & 0xFF, (size - 1) & 0xFF);
+		for (int i = 0; i < size; i++) {
+			jumps.add(new int[] {codeBytes.size(), position, i, 1});
+			emit(0, 0, 0, 0);
+		}
+	}
+}
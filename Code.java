@@ -1,61 +1,179 @@
 package pippin;
 
-import java.util.ArrayList;
+import java.util.TreeMap;
 
 public class Code {
-	
-	public class IntTriple{
-		private int op;
-		private int arg;
-		private int indirectionLevel;
-		
-		public IntTriple(int op, int arg, int indirectionLevel){
-			this.op = op;
-			this.arg = arg;
-			this.indirectionLevel = indirectionLevel;
-		}	
-	}
-	
-	
-	
+
+	/**
+	 * Each instruction is packed into one long: the opcode in the top 24 bits,
+	 * the indirection level in the next 8 bits and the argument in the low 32 bits.
+	 */
+	private static final int OP_SHIFT = 40;
+	private static final int LEVEL_SHIFT = 32;
+
 	public final static int CODE_MAX = 256;
-	private ArrayList<IntTriple> program = new ArrayList<IntTriple>();
-	
+	private long[] program = new long[CODE_MAX];
+	private int size = 0;
+	/** found by Superinstructions when first needed, null after the code changes */
+	private volatile byte[] superinstructions;
+	/** made by BytecodeTranslator when first needed, null after the code changes */
+	private volatile BytecodeTranslator.Translation translation;
+	/** the result of Verifier.verify, null until it is needed and after the code changes */
+	private volatile Boolean verified;
+	/** set for code shared through a ProgramCache, which must not change */
+	private volatile boolean readOnly;
+	/** counts the changes, so that a compiled copy can tell it is out of date */
+	private int version = 0;
+
+	public static long encode(int op, int arg, int level) {
+		return ((long)(op & 0xFFFFFF) << OP_SHIFT) | ((long)(level & 0xFF) << LEVEL_SHIFT) | (arg & 0xFFFFFFFFL);
+	}
+
+	public static int op(long word) {
+		return (int)(word >>> OP_SHIFT);
+	}
+
+	public static int arg(long word) {
+		return (int)word;
+	}
+
+	public static int level(long word) {
+		return (int)(word >>> LEVEL_SHIFT) & 0xFF;
+	}
+
 	public int getProgramSize(){
-		return program.size();
+		return size;
 	}
-	
+
+	/**
+	 * Returns the packed instruction at index i, to be decoded with
+	 * op, arg and level
+	 * @param i the index of the instruction
+	 * @return the packed instruction
+	 */
+	public long fetch(int i){
+		if(i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+		return program[i];
+	}
+
 	public int getOp(int i){
-		return program.get(i).op;
+		return op(fetch(i));
 	}
-	
+
 	public int getArg(int i){
-		return program.get(i).arg;
+		return arg(fetch(i));
 	}
-	
+
 	public int getIndirectionLevel(int i){
-		return program.get(i).indirectionLevel;
+		return level(fetch(i));
 	}
-	
+
 	public void clear(){
-		program.clear();
+		checkWritable();
+		size = 0;
+		superinstructions = null;
+		translation = null;
+		verified = null;
+		version++;
 	}
-	
+
 	public void setCode(int op, int arg, int level){
-		program.add(new IntTriple(op,arg,level));
+		setWord(encode(op, arg, level));
+	}
+
+	/**
+	 * Adds an instruction that is already packed, as read from a binary
+	 * executable
+	 * @param word the packed instruction
+	 */
+	public void setWord(long word){
+		checkWritable();
+		if(size >= CODE_MAX) {
+			throw new ArrayIndexOutOfBoundsException("Program is longer than " + CODE_MAX + " instructions");
+		}
+		program[size++] = word;
+		superinstructions = null;
+		translation = null;
+		verified = null;
+		version++;
+	}
+
+	/**
+	 * Makes the code read only: from now on setCode, setWord and clear throw
+	 * UnsupportedOperationException. Used for code that is shared, so one
+	 * user cannot change the program under the others.
+	 */
+	void makeReadOnly(){
+		readOnly = true;
 	}
-	
+
+	public boolean isReadOnly(){
+		return readOnly;
+	}
+
+	private void checkWritable(){
+		if(readOnly) {
+			throw new UnsupportedOperationException("The code is shared and cannot be changed");
+		}
+	}
+
+	int getVersion(){
+		return version;
+	}
+
+	/**
+	 * @return the kind of superinstruction starting at each index, as
+	 * returned by Superinstructions.analyze
+	 */
+	byte[] getSuperinstructions(){
+		byte[] kinds = superinstructions;
+		if(kinds == null) {
+			kinds = Superinstructions.analyze(program, size);
+			superinstructions = kinds;
+		}
+		return kinds;
+	}
+
+	/**
+	 * @return the code translated to JVM bytecode, shared by all the
+	 * machines running this code
+	 */
+	BytecodeTranslator.Translation getTranslation(){
+		BytecodeTranslator.Translation result = translation;
+		if(result == null) {
+			result = BytecodeTranslator.translate(this);
+			translation = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if Verifier.verify finds no errors in the code. The
+	 * code is verified when this is first called after a change.
+	 */
+	public boolean isVerified(){
+		Boolean result = verified;
+		if(result == null) {
+			result = Verifier.verify(this, new TreeMap<>());
+			verified = result;
+		}
+		return result;
+	}
+
 	public String getCodeText(int i) {
 		StringBuilder builder = new StringBuilder();
-		if(i < program.size()) {
-		builder.append(InstructionMap.mnemonics.get(program.get(i).op));
+		if(i < size) {
+		long word = program[i];
+		builder.append(InstructionMap.mnemonics.get(op(word)));
 		builder.append(' ');
-		for(int j = 0; j < program.get(i).indirectionLevel; j++) {
+		for(int j = 0; j < level(word); j++) {
 		builder.append('[');
 		}
-		builder.append(program.get(i).arg);
+		builder.append(arg(word));
 		}
 		return builder.toString();
 		}
-		
+
 }
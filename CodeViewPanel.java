@@ -77,9 +77,13 @@ public class CodeViewPanel implements Observer{
 			}
 			previousColor = -1;
 		}		
+		int pc = machineView.getProgramCounter();
+		if(arg1 instanceof MachineChange && ((MachineChange)arg1).getOldProgramCounter() == pc) {
+			return; // the highlighted row has not moved
+		}
 		if(this.previousColor >= 0 && previousColor < Code.CODE_MAX) {
 			codeText[previousColor].setBackground(Color.WHITE);
-			previousColor = machineView.getProgramCounter();
+			previousColor = pc;
 			if(this.previousColor >= 0 && previousColor < Code.CODE_MAX) {
 				codeText[previousColor].setBackground(Color.YELLOW);
 			}
@@ -87,8 +91,7 @@ public class CodeViewPanel implements Observer{
 
 		if(scroller != null && code != null && machineView!= null) {
 			JScrollBar bar= scroller.getVerticalScrollBar();
-			int pc = machineView.getProgramCounter();
-			if(pc < Code.CODE_MAX && codeText[pc] != null) {
+			if(pc >= 0 && pc < Code.CODE_MAX && codeText[pc] != null) {
 				Rectangle bounds = codeText[pc].getBounds();
 				bar.setValue(Math.max(0, bounds.y - 15*bounds.height));
 			}
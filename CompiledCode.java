@@ -0,0 +1,305 @@
+package pippin;
+
+/**
+ * A Code decoded once into a graph of nodes bound to one machine's
+ * registers and memory. Each node executes one instruction, or one
+ * superinstruction, with its opcode, addressing mode and argument already
+ * resolved, sets the program counter and returns the node to execute next,
+ * so that running the program is just node = node.exec().
+ * <p>
+ * Only the common addressing modes get their own nodes; anything else,
+ * including illegal indirection levels and unknown opcodes, is executed by
+ * the machine's Instruction for the opcode, so the results and the
+ * exceptions are exactly those of MachineModel.step().
+ */
+final class CompiledCode {
+	private static final int NOP = 0x0;
+	private static final int LOD = 0x1;
+	private static final int STO = 0x2;
+	private static final int ADD = 0x3;
+	private static final int SUB = 0x4;
+	private static final int MUL = 0x5;
+	private static final int DIV = 0x6;
+	private static final int AND = 0x7;
+	private static final int NOT = 0x8;
+	private static final int CMPZ = 0x9;
+	private static final int CMPL = 0xA;
+	private static final int JUMP = 0xB;
+	private static final int JMPZ = 0xC;
+	private static final int HALT = 0xF;
+	/** added to the opcode for direct addressing in compile's switch */
+	private static final int DIRECT = 1 << 24;
+
+	/**
+	 * One pre-decoded instruction. exec returns the next node, or null once
+	 * the program has halted.
+	 */
+	abstract static class Node {
+		final int pc;
+		/** the number of instructions exec executes */
+		int length = 1;
+		/** the node executing only the first of those instructions */
+		Node single = this;
+		/** the node for the instruction after this one */
+		Node next;
+
+		Node(int pc) {
+			this.pc = pc;
+		}
+
+		abstract Node exec();
+	}
+
+	private final MachineModel model;
+	private final MachineModel.Registers cpu;
+	private final Memory memory;
+	private final Code code;
+	private final int version;
+	private final Node[] nodes;
+
+	CompiledCode(MachineModel model, MachineModel.Registers cpu, Memory memory, Code code) {
+		this.model = model;
+		this.cpu = cpu;
+		this.memory = memory;
+		this.code = code;
+		this.version = code.getVersion();
+		int size = code.getProgramSize();
+		byte[] fused = code.getSuperinstructions();
+		Node[] singles = new Node[size];
+		nodes = new Node[size];
+		for (int pc = 0; pc < size; pc++) {
+			singles[pc] = compile(pc, code.fetch(pc));
+			nodes[pc] = fused[pc] == Superinstructions.NONE ? singles[pc] : fuse(fused[pc], pc, singles[pc]);
+		}
+		// jumps to an address go to the superinstruction starting there, if any
+		for (int pc = 0; pc < size; pc++) {
+			link(singles[pc]);
+			if (nodes[pc] != singles[pc]) {
+				link(nodes[pc]);
+			}
+		}
+	}
+
+	private void link(Node node) {
+		node.next = at(node.pc + node.length);
+		if (node instanceof Jump) {
+			((Jump)node).link();
+		}
+	}
+
+	/**
+	 * @return true if the code has not changed since it was compiled
+	 */
+	boolean isCurrent(Code code) {
+		return code == this.code && code.getVersion() == version;
+	}
+
+	/**
+	 * @return the node for the instruction at pc; outside the program a node
+	 * that fails as fetching the instruction would
+	 */
+	Node at(int pc) {
+		if (pc >= 0 && pc < nodes.length) {
+			return nodes[pc];
+		}
+		return new Missing(pc);
+	}
+
+	private Node compile(int pc, long word) {
+		int op = Code.op(word);
+		int arg = Code.arg(word);
+		int level = Code.level(word);
+		int after = pc + 1;
+		switch (op | level << 24) {
+		case NOP: return new Node(pc) {
+			Node exec() { cpu.programCounter = after; return next; } };
+		case LOD: return new Node(pc) {
+			Node exec() { cpu.accumulator = arg; cpu.programCounter = after; return next; } };
+		case LOD | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator = memory.getData(arg); cpu.programCounter = after; return next; } };
+		case STO | DIRECT: return new Node(pc) {
+			Node exec() { memory.setData(arg, cpu.accumulator); cpu.programCounter = after; return next; } };
+		case ADD: return new Node(pc) {
+			Node exec() { cpu.accumulator += arg; cpu.programCounter = after; return next; } };
+		case ADD | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator += memory.getData(arg); cpu.programCounter = after; return next; } };
+		case SUB: return new Node(pc) {
+			Node exec() { cpu.accumulator -= arg; cpu.programCounter = after; return next; } };
+		case SUB | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator -= memory.getData(arg); cpu.programCounter = after; return next; } };
+		case MUL: return new Node(pc) {
+			Node exec() { cpu.accumulator *= arg; cpu.programCounter = after; return next; } };
+		case MUL | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator *= memory.getData(arg); cpu.programCounter = after; return next; } };
+		case DIV: return new Node(pc) {
+			Node exec() {
+				if (arg == 0) {
+					throw new DivideByZeroException("Division by zero");
+				}
+				cpu.accumulator /= arg;
+				cpu.programCounter = after;
+				return next;
+			} };
+		case DIV | DIRECT: return new Node(pc) {
+			Node exec() {
+				int divisor = memory.getData(arg);
+				if (divisor == 0) {
+					throw new DivideByZeroException("Division by zero");
+				}
+				cpu.accumulator /= divisor;
+				cpu.programCounter = after;
+				return next;
+			} };
+		case AND: return new Node(pc) {
+			Node exec() {
+				cpu.accumulator = cpu.accumulator != 0 && arg != 0 ? 1 : 0;
+				cpu.programCounter = after;
+				return next;
+			} };
+		case AND | DIRECT: return new Node(pc) {
+			Node exec() {
+				int value = memory.getData(arg);
+				cpu.accumulator = cpu.accumulator != 0 && value != 0 ? 1 : 0;
+				cpu.programCounter = after;
+				return next;
+			} };
+		case NOT: return new Node(pc) {
+			Node exec() { cpu.accumulator = cpu.accumulator == 0 ? 1 : 0; cpu.programCounter = after; return next; } };
+		case CMPZ | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator = memory.getData(arg) == 0 ? 1 : 0; cpu.programCounter = after; return next; } };
+		case CMPL | DIRECT: return new Node(pc) {
+			Node exec() { cpu.accumulator = memory.getData(arg) < 0 ? 1 : 0; cpu.programCounter = after; return next; } };
+		case JUMP: return new Jump(pc, arg) {
+			Node exec() { cpu.programCounter = arg; return target; } };
+		case JUMP | DIRECT: return new Node(pc) {
+			Node exec() {
+				int to = memory.getData(arg);
+				cpu.programCounter = to;
+				return at(to);
+			} };
+		case JMPZ: return new Jump(pc, arg) {
+			Node exec() {
+				if (cpu.accumulator == 0) {
+					cpu.programCounter = arg;
+					return target;
+				}
+				cpu.programCounter = after;
+				return next;
+			} };
+		case JMPZ | DIRECT: return new Node(pc) {
+			Node exec() {
+				int to = memory.getData(arg);
+				if (cpu.accumulator == 0) {
+					cpu.programCounter = to;
+					return at(to);
+				}
+				cpu.programCounter = after;
+				return next;
+			} };
+		case HALT: return new Node(pc) {
+			Node exec() { model.halt(); return null; } };
+		default: return new Interpreted(pc, op, arg, level);
+		}
+	}
+
+	/**
+	 * A superinstruction from Superinstructions, with its operands decoded
+	 */
+	private Node fuse(byte kind, int pc, Node single) {
+		long first = code.fetch(pc);
+		long second = code.fetch(pc + 1);
+		boolean firstDirect = Code.level(first) == 1;
+		boolean secondDirect = Code.level(second) == 1;
+		int a = Code.arg(first);
+		int b = Code.arg(second);
+		Node fused;
+		if (kind == Superinstructions.CMPZ_JMPZ) {
+			int after = pc + 2;
+			fused = new Jump(pc, b) {
+				Node exec() {
+					int accumulator = memory.getData(a) == 0 ? 1 : 0;
+					cpu.accumulator = accumulator;
+					if (accumulator != 0) {
+						cpu.programCounter = after;
+						return next;
+					}
+					if (secondDirect) {
+						int to = memory.getData(b);
+						cpu.programCounter = to;
+						return at(to);
+					}
+					cpu.programCounter = b;
+					return target;
+				} };
+		} else {
+			int c = Code.arg(code.fetch(pc + 2));
+			int after = pc + 3;
+			boolean subtract = kind == Superinstructions.LOD_SUB_STO;
+			fused = new Node(pc) {
+				Node exec() {
+					int value = firstDirect ? memory.getData(a) : a;
+					int operand = secondDirect ? memory.getData(b) : b;
+					value = subtract ? value - operand : value + operand;
+					cpu.accumulator = value;
+					memory.setData(c, value);
+					cpu.programCounter = after;
+					return next;
+				} };
+		}
+		fused.length = Superinstructions.length(kind);
+		fused.single = single;
+		return fused;
+	}
+
+	/**
+	 * A node with a jump target known when the code is compiled
+	 */
+	private abstract class Jump extends Node {
+		private final int to;
+		Node target;
+
+		Jump(int pc, int to) {
+			super(pc);
+			this.to = to;
+		}
+
+		void link() {
+			target = at(to);
+		}
+	}
+
+	/**
+	 * Executes any other instruction with the machine's Instruction
+	 */
+	private class Interpreted extends Node {
+		private final int op;
+		private final int arg;
+		private final int level;
+
+		Interpreted(int pc, int op, int arg, int level) {
+			super(pc);
+			this.op = op;
+			this.arg = arg;
+			this.level = level;
+		}
+
+		Node exec() {
+			model.instruction(op).execute(arg, level);
+			return model.isRunning() ? at(cpu.programCounter) : null;
+		}
+	}
+
+	/**
+	 * Stands for an address outside the program
+	 */
+	private class Missing extends Node {
+		Missing(int pc) {
+			super(pc);
+		}
+
+		Node exec() {
+			code.fetch(pc);
+			throw new IllegalStateException("Instruction " + pc + " was added after the code was compiled");
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompiledCodeTester {
+
+    /**
+     * Multiplies data[1] by data[2] into data[3] by repeated addition, using
+     * immediate, direct and indirect operands.
+     */
+    static Code multiply() {
+        Code code = new Code();
+        code.setCode(0x1, 0, 0);  // 0: LOD 0
+        code.setCode(0x2, 3, 1);  // 1: STO [3]
+        code.setCode(0x9, 2, 1);  // 2: CMPZ [2]
+        code.setCode(0x8, 0, 0);  // 3: NOT
+        code.setCode(0xC, 13, 0); // 4: JMPZ 13
+        code.setCode(0x1, 3, 1);  // 5: LOD [3]
+        code.setCode(0x3, 4, 2);  // 6: ADD [[4]
+        code.setCode(0x2, 3, 1);  // 7: STO [3]
+        code.setCode(0x1, 2, 1);  // 8: LOD [2]
+        code.setCode(0x4, 1, 0);  // 9: SUB 1
+        code.setCode(0x2, 2, 1);  // 10: STO [2]
+        code.setCode(0x5, 1, 0);  // 11: MUL 1
+        code.setCode(0xB, 5, 1);  // 12: JUMP [5]
+        code.setCode(0xF, 0, 0);  // 13: HALT
+        return code;
+    }
+
+    /**
+     * @return data memory for multiply(), which works out 7 * 6
+     */
+    static int[] multiplyData() {
+        int[] data = new int[Memory.DATA_SIZE];
+        data[1] = 7;
+        data[2] = 6;
+        data[4] = 1;
+        data[5] = 2;
+        return data;
+    }
+
+    /**
+     * @return data memory holding a ROT descriptor for address 0, a 0 at 3
+     * for division by zero, an address outside memory at 6 and a spread of
+     * values with zeros and negatives
+     */
+    static int[] spreadData() {
+        int[] data = new int[Memory.DATA_SIZE];
+        for (int i = 0; i < Memory.DATA_SIZE; i++) {
+            data[i] = i * 37 % 11 - 5;
+        }
+        data[0] = 10;  // ROT start
+        data[1] = 4;   // ROT length
+        data[2] = -1;  // ROT move
+        data[3] = 0;
+        data[6] = Memory.DATA_SIZE + 5;
+        data[Memory.DATA_SIZE - 1] = 2;
+        return data;
+    }
+
+    /**
+     * @return a machine holding the code and data, with nothing in its change
+     * feed, that promotes the code after hotLoopThreshold backward jumps
+     * @param translated true to promote to the translated tier, false to the compiled one
+     */
+    static MachineModel machine(Code code, int[] data, int hotLoopThreshold, boolean translated) {
+        MachineModel machine = new MachineModel();
+        machine.setHotLoopThreshold(hotLoopThreshold);
+        machine.setBytecodeTranslation(translated);
+        machine.setProgram(new Program("tester", code, data));
+        machine.drainChanges();
+        return machine;
+    }
+
+    /**
+     * Steps the code from the data until it halts and checks a run promoted
+     * before it starts, stopped after each of those numbers of steps, ends in
+     * the same state, and that a run to the end halts after as many steps
+     * @return the machine that was stepped
+     */
+    static MachineModel assertEveryStepBoundary(Code code, int[] data, boolean translated) {
+        MachineModel stepped = machine(code, data, 0, false);
+        stepped.setRunning(true);
+        int steps = 0;
+        while (stepped.isRunning()) {
+            stepped.step();
+            steps++;
+            MachineModel run = machine(code, data, 0, translated);
+            assertEquals(steps, run.run(steps));
+            assertEquals(stepped.getAccumulator(), run.getAccumulator());
+            assertEquals(stepped.getProgramCounter(), run.getProgramCounter());
+            assertEquals(stepped.getChangedIndex(), run.getChangedIndex());
+            assertArrayEquals(stepped.getData(), run.getData());
+        }
+        MachineModel run = machine(code, data, 0, translated);
+        run.run(steps + 1000);
+        assertSame(StopReason.HALTED, run.getStopReason());
+        assertEquals(steps, run.getStepCount());
+        return stepped;
+    }
+
+    /**
+     * Checks division by zero in a promoted run leaves the program counter at
+     * the failing instruction and counts only the steps before it
+     */
+    static void assertErrorAtFailingInstruction(boolean translated) {
+        Code code = new Code();
+        code.setCode(0x1, 5, 0);  // 0: LOD 5
+        code.setCode(0x6, 0, 1);  // 1: DIV [0]
+        MachineModel machine = machine(code, new int[Memory.DATA_SIZE], 0, translated);
+        try {
+            machine.run(10);
+        } catch (DivideByZeroException e) {
+            assertEquals(1, machine.getProgramCounter());
+            assertEquals(5, machine.getAccumulator());
+            assertEquals(1, machine.getStepCount());
+            return;
+        }
+        throw new AssertionError("DIV by zero did not throw");
+    }
+
+    @Test
+    // Test a run stopped after any number of steps matches single stepping
+    public void testEveryStepBoundary() {
+        MachineModel stepped = assertEveryStepBoundary(multiply(), multiplyData(), false);
+        assertEquals(42, stepped.getData(3));
+    }
+
+    @Test
+    // Test an error leaves the program counter at the failing instruction
+    public void testError() {
+        assertErrorAtFailingInstruction(false);
+    }
+
+    @Test
+    // Test instructions added after setCode are run
+    public void testCodeChangedAfterSetCode() {
+        Code code = new Code();
+        MachineModel machine = machine(code, new int[Memory.DATA_SIZE], 0, false);
+        code.setCode(0x1, 9, 0);  // 0: LOD 9
+        code.setCode(0xF, 0, 0);  // 1: HALT
+        machine.run(10);
+        assertEquals(9, machine.getAccumulator());
+        assertEquals(StopReason.HALTED, machine.getStopReason());
+    }
+
+    /** the opcodes of random programs, with the common ones more likely and two unknown ones */
+    private static final int[] RANDOM_OPS = {0x0, 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0x8, 0x9, 0xA, 0xB, 0xC, 0xF, 0x14,
+            0x1, 0x2, 0x3, 0x4, 0x9, 0xC, 0x1, 0x2, 0x3, 0x4, 0x9, 0xC, 0xD, 0x30};
+
+    /**
+     * @return a random program of up to 20 instructions, mostly with legal
+     * levels, small addresses and jump targets in or just outside the program
+     */
+    static Code randomProgram(Random random) {
+        Code code = new Code();
+        int size = 1 + random.nextInt(20);
+        for (int i = 0; i < size; i++) {
+            int op = RANDOM_OPS[random.nextInt(RANDOM_OPS.length)];
+            int level = random.nextInt(10) < 8 ? random.nextInt(2) : random.nextInt(4);
+            int arg = (op == 0xB || op == 0xC) && level == 0 ? random.nextInt(size + 2) - 1 : random.nextInt(14) - 1;
+            if (random.nextInt(50) == 0) {
+                arg = Memory.DATA_SIZE + random.nextInt(100);
+            }
+            code.setCode(op, arg, level);
+        }
+        return code;
+    }
+
+    /**
+     * @return data memory with small values, many of them 0 or negative, in
+     * the first 16 addresses
+     */
+    static int[] randomData(Random random) {
+        int[] data = new int[Memory.DATA_SIZE];
+        for (int i = 0; i < 16; i++) {
+            data[i] = random.nextInt(8) - 2;
+        }
+        return data;
+    }
+
+    private static String describe(Code code) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < code.getProgramSize(); i++) {
+            builder.append(String.format("%n  %d: %x %d %d", i, code.getOp(i), code.getArg(i), code.getIndirectionLevel(i)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Executes the code from the data for up to maxSteps instructions, once
+     * with step() and once with run() promoted before it starts, and checks
+     * both end in the same state with the same exception
+     * @param translated true to run the translated code, false the compiled code
+     */
+    static void assertRunMatchesStepping(Code code, int[] data, int maxSteps, boolean translated) {
+        MachineModel stepped = machine(code, data, 0, false);
+        stepped.setRunning(true);
+        Class<?> steppedError = null;
+        try {
+            for (int i = 0; i < maxSteps && stepped.isRunning(); i++) {
+                stepped.step();
+            }
+        } catch (RuntimeException e) {
+            steppedError = e.getClass();
+        }
+
+        MachineModel run = machine(code, data, 0, translated);
+        Class<?> runError = null;
+        try {
+            run.run(maxSteps);
+        } catch (RuntimeException e) {
+            runError = e.getClass();
+        }
+
+        String program = maxSteps + " steps of" + describe(code);
+        assertEquals("Exception after " + program, steppedError, runError);
+        assertEquals("Steps after " + program, stepped.getStepCount(), run.getStepCount());
+        assertEquals("Accumulator after " + program, stepped.getAccumulator(), run.getAccumulator());
+        assertEquals("Program counter after " + program, stepped.getProgramCounter(), run.getProgramCounter());
+        assertArrayEquals("Memory after " + program, stepped.getData(), run.getData());
+        assertEquals("Last change after " + program, stepped.getChangedIndex(), run.getChangedIndex());
+        if (steppedError == null) {
+            assertEquals("Running after " + program, stepped.isRunning(), run.isRunning());
+        }
+    }
+
+    @Test
+    // Test random programs, including illegal ones, run as they step
+    public void testRandomPrograms() {
+        Random random = new Random(22);
+        for (int i = 0; i < 2000; i++) {
+            assertRunMatchesStepping(randomProgram(random), randomData(random), 1 + random.nextInt(200), false);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Observable;
 import java.util.Observer;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 
@@ -14,6 +15,7 @@ public class ControlPanel implements Observer {
 	private JButton clearButton = new JButton("Clear");
 	private JButton runButton = new JButton("Run/Pause");;
 	private JButton reloadButton = new JButton("Reload");;
+	private JComboBox<Speed> speedBox = new JComboBox<>(Speed.values());
 
 	public ControlPanel(MachineView machineView) {
 		this.machineView = machineView;
@@ -35,6 +37,9 @@ public class ControlPanel implements Observer {
 		reloadButton.setBackground(Color.WHITE);
 		reloadButton.addActionListener(e -> machineView.reload());
 		returnPanel.add(reloadButton);
+		speedBox.setSelectedItem(machineView.getSpeed());
+		speedBox.addActionListener(e -> machineView.setSpeed((Speed)speedBox.getSelectedItem()));
+		returnPanel.add(speedBox);
 		return returnPanel;
 	}
 
@@ -44,5 +49,8 @@ public class ControlPanel implements Observer {
 		stepButton.setEnabled(machineView.getState().getStepActive());
 		clearButton.setEnabled(machineView.getState().getClearActive());
 		reloadButton.setEnabled(machineView.getState().getReloadActive());
+		if(speedBox.getSelectedItem() != machineView.getSpeed()) {
+			speedBox.setSelectedItem(machineView.getSpeed());
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package pippin;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Counts of executed instructions, collected by MachineModel when a stats
+ * object is attached with setStats. Counts are kept per opcode and, for each
+ * opcode, per indirection level. Time is only measured for calls to run.
+ */
+public class ExecutionStats {
+	public static final int LEVELS = 3;
+	private static final int OPCODES = InstructionMap.mnemonics.keySet().stream().mapToInt(Integer::intValue).max().getAsInt() + 1;
+
+	private long[] counts = new long[OPCODES];
+	private long[] levelCounts = new long[OPCODES * LEVELS];
+	/** per opcode, instructions with a level of LEVELS or more, which only HALT accepts */
+	private long[] otherLevelCounts = new long[OPCODES];
+	private long totalSteps;
+	private long nanos;
+
+	/**
+	 * Records one completed instruction. Only called for instructions that
+	 * executed successfully, so the opcode is a legal one, but HALT executes
+	 * whatever its level, so the level may be out of range.
+	 */
+	void count(int op, int level) {
+		counts[op]++;
+		if(level >= 0 && level < LEVELS) {
+			levelCounts[op * LEVELS + level]++;
+		} else {
+			otherLevelCounts[op]++;
+		}
+		totalSteps++;
+	}
+
+	void addTime(long elapsed) {
+		nanos += elapsed;
+	}
+
+	public long getCount(int op) {
+		return op >= 0 && op < OPCODES ? counts[op] : 0;
+	}
+
+	public long getLevelCount(int op, int level) {
+		if(op < 0 || op >= OPCODES || level < 0 || level >= LEVELS) {
+			return 0;
+		}
+		return levelCounts[op * LEVELS + level];
+	}
+
+	/**
+	 * @return the number of instructions with the opcode and a level that is
+	 * not 0, 1 or 2
+	 */
+	public long getOtherLevelCount(int op) {
+		return op >= 0 && op < OPCODES ? otherLevelCounts[op] : 0;
+	}
+
+	public long getTotalSteps() {
+		return totalSteps;
+	}
+
+	/**
+	 * @return the time spent in MachineModel.run while these stats were attached
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	public double getInstructionsPerSecond() {
+		return nanos == 0 ? 0 : totalSteps * 1e9 / nanos;
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		Arrays.fill(levelCounts, 0);
+		Arrays.fill(otherLevelCounts, 0);
+		totalSteps = 0;
+		nanos = 0;
+	}
+
+	/**
+	 * @return one line per opcode: opcode,mnemonic,count,level0,level1,level2,other
+	 */
+	public String toCsv() {
+		StringBuilder builder = new StringBuilder("opcode,mnemonic,count,level0,level1,level2,other\n");
+		for(Map.Entry<Integer, String> entry : InstructionMap.mnemonics.entrySet()) {
+			int op = entry.getKey();
+			builder.append(Integer.toString(op, 16)).append(',').append(entry.getValue()).append(',').append(counts[op]);
+			for(int level = 0; level < LEVELS; level++) {
+				builder.append(',').append(levelCounts[op * LEVELS + level]);
+			}
+			builder.append(',').append(otherLevelCounts[op]);
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @return a table of the executed opcodes, most frequent first
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-6s %12s %7s %12s %12s %12s%n", "op", "count", "%", "immediate", "direct", "indirect"));
+		InstructionMap.mnemonics.keySet().stream()
+				.filter(op -> counts[op] > 0)
+				.sorted((a, b) -> Long.compare(counts[b], counts[a]))
+				.forEach(op -> builder.append(String.format("%-6s %12d %7.2f %12d %12d %12d%n",
+						InstructionMap.mnemonics.get(op), counts[op], 100.0 * counts[op] / totalSteps,
+						levelCounts[op * LEVELS], levelCounts[op * LEVELS + 1], levelCounts[op * LEVELS + 2])));
+		builder.append(String.format("total %12d instructions", totalSteps));
+		if(nanos > 0) {
+			builder.append(String.format(" in %.3f ms, %.0f instructions/s", nanos / 1e6, getInstructionsPerSecond()));
+		}
+		builder.append(String.format("%n"));
+		return builder.toString();
+	}
+}
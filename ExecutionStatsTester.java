@@ -0,0 +1,77 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ExecutionStatsTester {
+
+    /**
+     * Runs LOD 2 / STO [0] / ADD [0] / ADD [[1]] / HALT with the HALT at the
+     * given level
+     */
+    private ExecutionStats run(int haltLevel) {
+        Code code = new Code();
+        code.setCode(0x1, 2, 0);          // 0: LOD 2
+        code.setCode(0x2, 0, 1);          // 1: STO [0]
+        code.setCode(0x3, 0, 1);          // 2: ADD [0]
+        code.setCode(0x3, 1, 2);          // 3: ADD [[1]]
+        code.setCode(0xF, 0, haltLevel);  // 4: HALT
+        MachineModel machine = new MachineModel();
+        ExecutionStats stats = new ExecutionStats();
+        machine.setStats(stats);
+        machine.setCode(code);
+        machine.run(100);
+        assertEquals(StopReason.HALTED, machine.getStopReason());
+        return stats;
+    }
+
+    @Test
+    // Test the counts per opcode and per level
+    public void testCounts() {
+        ExecutionStats stats = run(0);
+        assertEquals(5, stats.getTotalSteps());
+        assertEquals(1, stats.getCount(0x1));
+        assertEquals(2, stats.getCount(0x3));
+        assertEquals(1, stats.getLevelCount(0x1, 0));
+        assertEquals(1, stats.getLevelCount(0x2, 1));
+        assertEquals(1, stats.getLevelCount(0x3, 1));
+        assertEquals(1, stats.getLevelCount(0x3, 2));
+        assertEquals(0, stats.getLevelCount(0x3, 0));
+        assertEquals(1, stats.getLevelCount(0xF, 0));
+        assertTrue(stats.getNanos() > 0);
+        stats.reset();
+        assertEquals(0, stats.getTotalSteps());
+        assertEquals(0, stats.getCount(0x3));
+    }
+
+    @Test
+    // Test a HALT with a level out of range is counted apart
+    public void testOtherLevel() {
+        ExecutionStats stats = run(ExecutionStats.LEVELS + 4);
+        assertEquals(1, stats.getCount(0xF));
+        assertEquals(1, stats.getOtherLevelCount(0xF));
+        assertEquals(0, stats.getLevelCount(0xF, 0));
+        assertEquals(0, stats.getOtherLevelCount(0x14));
+        assertEquals(0, stats.getLevelCount(0x14, 0));
+    }
+
+    @Test
+    // Test the CSV and the table
+    public void testReports() {
+        ExecutionStats stats = run(3);
+        String csv = stats.toCsv();
+        assertTrue(csv.startsWith("opcode,mnemonic,count,level0,level1,level2,other\n"));
+        assertTrue(csv.contains("\n3,ADD,2,0,1,1,0\n"));
+        assertTrue(csv.contains("\nf,HALT,1,0,0,0,1\n"));
+        assertEquals(InstructionMap.mnemonics.size() + 1, csv.split("\n").length);
+
+        String[] lines = stats.toString().split("\\R");
+        assertTrue(lines[0].startsWith("op "));
+        assertTrue(lines[1].startsWith("ADD "));
+        assertTrue(lines[1].contains("40.00"));
+        assertEquals(6, lines.length);
+        assertTrue(lines[5].startsWith("total            5 instructions in "));
+    }
+}
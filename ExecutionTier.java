@@ -0,0 +1,14 @@
+package pippin;
+
+/**
+ * How MachineModel.run executes the code. A program starts out
+ * interpreted and is promoted once one of its loops is hot.
+ */
+public enum ExecutionTier {
+	/** each instruction is fetched and decoded as it is executed */
+	INTERPRETED,
+	/** the code runs on the node graph of CompiledCode */
+	COMPILED,
+	/** the code runs as JVM bytecode made by BytecodeTranslator */
+	TRANSLATED
+}
@@ -468,6 +468,25 @@ public class InstructionTester {
                 machine.getAccumulator());
     }
 
+    @Test (expected=ArrayIndexOutOfBoundsException.class)
+    // Check AND reads memory even when the accumulator is 0
+    public void testANDaccEQ0addressOutOfRange() {
+        Instruction instr = machine.get(0x7);
+        machine.setAccumulator(0);
+        instr.execute(Memory.DATA_SIZE, 1);
+    }
+
+    @Test (expected=ArrayIndexOutOfBoundsException.class)
+    // Check compiled AND reads memory even when the accumulator is 0
+    public void testANDaccEQ0addressOutOfRangeCompiled() {
+        Code code = new Code();
+        code.setCode(0x7, Memory.DATA_SIZE, 1);
+        machine.setHotLoopThreshold(0);
+        machine.setCode(code);
+        machine.setAccumulator(0);
+        machine.run(1);
+    }
+
     @Test
     // Check AND when accum and mem pos gives true
     public void testANDaccGT0memGT0() {
@@ -694,6 +713,41 @@ public class InstructionTester {
     	instr.execute(12, 1);
     	assertEquals("Data got rotated", check, machine.getData(262));
     	}
-    
-    
-}
\ No newline at end of file
+
+    @Test
+    //Check ROT with a positive move only changes the rotated block
+    public void testROTpositive() {
+    	Instruction instr = machine.get(0x14);
+    	machine.setData(12,207);
+    	machine.setData(13,58);
+    	machine.setData(14,3);
+    	dataCopy[12] = 207;
+    	dataCopy[13] = 58;
+    	dataCopy[14] = 3;
+    	int[] block = new int[58];
+    	for(int i = 0; i < 58; i++) {
+    		block[(i + 3) % 58] = dataCopy[207 + i];
+    	}
+    	System.arraycopy(block, 0, dataCopy, 207, 58);
+    	instr.execute(12, 1);
+    	assertArrayEquals(dataCopy, machine.getData());
+    	assertEquals("Accumulator holds the value moved last", dataCopy[207],
+    			machine.getAccumulator());
+    	assertEquals("Program counter incremented", ipInit+1,
+    			machine.getProgramCounter());
+    }
+
+    @Test
+    //Check ROT by more than the block length wraps around
+    public void testROTlargeMove() {
+    	Instruction instr = machine.get(0x14);
+    	machine.setData(12,207);
+    	machine.setData(13,58);
+    	machine.setData(14,-3 - 58*1000);
+    	int check = machine.getData(207);
+    	instr.execute(12, 1);
+    	assertEquals("Data got rotated", check, machine.getData(262));
+    	assertEquals("Below the block unchanged", dataCopy[206], machine.getData(206));
+    	assertEquals("Above the block unchanged", dataCopy[265], machine.getData(265));
+    }
+}
@@ -2,43 +2,245 @@ package pippin;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.JOptionPane;
 
 public class Loader {
 	public static void load(MachineModel model, Code code, File file) throws FileNotFoundException {
 		if(model == null || code == null || file == null) return;
-		
-		try (Scanner input = new Scanner(file)) {
-			boolean incode = true;
-			
-			while (input.hasNextLine()){
-				String line = input.nextLine();
-				Scanner parser = new Scanner(line);
-				int first = parser.nextInt(16);
-				
-				if (incode == true && first == -1){
+
+		Map<Integer, String> errors = new TreeMap<>();
+		if(!load(model, code, file, errors)) {
+			JOptionPane.showMessageDialog(null, errors.values().iterator().next(),"Failure loading data", JOptionPane.WARNING_MESSAGE);
+		}
+	}
+
+	/**
+	 * Loads an executable without any user interaction. Files with the
+	 * BinaryExecutable extension are read in the binary format, anything else
+	 * as text. Loading stops at the first bad line, which is reported in the
+	 * errors map with the line number as the key and the description of the
+	 * problem as the value.
+	 * @param model the machine that receives the data values
+	 * @param code the code object that receives the instructions
+	 * @param file the executable file
+	 * @param errors the errors map
+	 * @return true if the whole file was loaded
+	 * @throws FileNotFoundException if the file cannot be opened
+	 */
+	public static boolean load(MachineModel model, Code code, File file, Map<Integer, String> errors) throws FileNotFoundException {
+		if (errors == null){
+			throw new IllegalArgumentException("Coding error: the error map is null");
+		}
+
+		try {
+			if (BinaryExecutable.isBinary(file)) {
+				return BinaryExecutable.load(model, code, file, errors);
+			}
+			try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				return load(model, code, input, errors);
+			}
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(file.getPath());
+		} catch (IOException e) {
+			errors.put(0, "Error: Unable to read the executable: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Loads a text executable from a channel. Each code line holds the opcode,
+	 * argument and indirection level in hex, a line starting with -1 separates
+	 * the code from the data, and each data line holds an address and a value.
+	 * Anything after the expected values on a line is ignored. The text is
+	 * tokenized straight from a byte buffer, so no objects are created per line.
+	 * @param model the machine that receives the data values
+	 * @param code the code object that receives the instructions
+	 * @param input the executable text
+	 * @param errors the errors map, as for load(model, code, file, errors)
+	 * @return true if the whole text was loaded
+	 * @throws IOException if the channel cannot be read
+	 */
+	public static boolean load(MachineModel model, Code code, ReadableByteChannel input, Map<Integer, String> errors) throws IOException {
+		HexTokenizer tokens = new HexTokenizer(input);
+		boolean incode = true;
+		int lineNumber = 0;
+
+		while (tokens.hasMoreLines()){
+			lineNumber++;
+			String problem = tokens.next("opcode or address");
+			if (problem == null){
+				if (incode == true && tokens.value == -1){
 					incode = false;
 				} else if (incode == true) {
-					int arg = parser.nextInt(16);
-					int level = parser.nextInt(16);
-					code.setCode(first, arg, level);
+					problem = loadInstruction(tokens, code);
 				} else {
-					int value = parser.nextInt(16);
-					model.setData(first, value);
+					problem = loadData(tokens, model);
+				}
+			}
+			if (problem != null){
+				errors.put(lineNumber, "Error on line " + lineNumber + ": " + problem);
+				return false;
+			}
+			tokens.skipLine();
+		}
+		return errors.size() == 0;
+	}
+
+	/**
+	 * Reads the argument and level of the instruction whose opcode was just read
+	 * @return null or what went wrong
+	 */
+	private static String loadInstruction(HexTokenizer tokens, Code code) throws IOException {
+		int op = tokens.value;
+		String problem = tokens.next("argument");
+		if (problem != null){
+			return problem;
+		}
+		int arg = tokens.value;
+		problem = tokens.next("indirection level");
+		if (problem != null){
+			return problem;
+		}
+		if (code.getProgramSize() >= Code.CODE_MAX){
+			return "the program is longer than " + Code.CODE_MAX + " instructions";
+		}
+		code.setCode(op, arg, tokens.value);
+		return null;
+	}
+
+	/**
+	 * Reads the value for the data address that was just read
+	 * @return null or what went wrong
+	 */
+	private static String loadData(HexTokenizer tokens, MachineModel model) throws IOException {
+		int address = tokens.value;
+		String problem = tokens.next("value");
+		if (problem != null){
+			return problem;
+		}
+		if (address < 0 || address >= Memory.DATA_SIZE){
+			return "address " + Integer.toString(address, 16).toUpperCase() + " is outside data memory";
+		}
+		model.setData(address, tokens.value);
+		return null;
+	}
+
+	/**
+	 * Reads signed hex integers from a channel one line at a time, following
+	 * the rules of Scanner.nextInt(16) on whitespace-separated tokens.
+	 */
+	private static class HexTokenizer {
+		private static final int END = -1;
+		private ReadableByteChannel input;
+		private ByteBuffer buffer = ByteBuffer.allocate(8192);
+		private boolean endOfInput = false;
+		/** the last value read by next */
+		int value;
+
+		HexTokenizer(ReadableByteChannel input) {
+			this.input = input;
+			buffer.flip();
+		}
+
+		private int peek() throws IOException {
+			while (!buffer.hasRemaining()) {
+				if (endOfInput) {
+					return END;
 				}
-					parser.close();
+				buffer.clear();
+				if (input.read(buffer) < 0) {
+					endOfInput = true;
 				}
-			
-			} catch (ArrayIndexOutOfBoundsException e) {
-				JOptionPane.showMessageDialog(null, e.getMessage(),"Failure loading data", JOptionPane.WARNING_MESSAGE);
-			} catch (NoSuchElementException e) {
-				JOptionPane.showMessageDialog(null,"NoSuchElementException","Failure loading data", JOptionPane.WARNING_MESSAGE);
+				buffer.flip();
 			}
-		
-			
+			return buffer.get(buffer.position()) & 0xFF;
+		}
+
+		private void advance() {
+			buffer.position(buffer.position() + 1);
+		}
+
+		private static boolean isLineEnd(int c) {
+			return c == '\n' || c == '\r' || c == END;
+		}
+
+		private static boolean isSpace(int c) {
+			return c == ' ' || c == '\t' || c == '\f' || c == 0x0B;
+		}
+
+		boolean hasMoreLines() throws IOException {
+			return peek() != END;
+		}
+
+		/**
+		 * Reads the next token on the current line into value.
+		 * @param what the name of the value, used in the error message
+		 * @return null if a value was read, otherwise what went wrong
+		 */
+		String next(String what) throws IOException {
+			int c = peek();
+			while (isSpace(c)) {
+				advance();
+				c = peek();
+			}
+			if (isLineEnd(c)) {
+				return "missing " + what;
+			}
+			boolean negative = false;
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				advance();
+				c = peek();
+			}
+			long magnitude = 0;
+			int digits = 0;
+			boolean valid = true;
+			while (!isSpace(c) && !isLineEnd(c)) {
+				int digit = Character.digit(c, 16);
+				if (digit < 0) {
+					valid = false;
+				} else if (magnitude <= Integer.MAX_VALUE + 1L) {
+					magnitude = magnitude * 16 + digit;
+				}
+				digits++;
+				advance();
+				c = peek();
+			}
+			if (!valid || digits == 0) {
+				return what + " is not a hex number";
+			}
+			if (magnitude > (negative ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE)) {
+				return what + " is out of range";
+			}
+			value = (int)(negative ? -magnitude : magnitude);
+			return null;
 		}
-}
 
+		/**
+		 * Skips to the start of the next line.
+		 */
+		void skipLine() throws IOException {
+			int c = peek();
+			while (!isLineEnd(c)) {
+				advance();
+				c = peek();
+			}
+			if (c == '\r') {
+				advance();
+				c = peek();
+			}
+			if (c == '\n') {
+				advance();
+			}
+		}
+	}
+}
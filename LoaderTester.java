@@ -0,0 +1,88 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoaderTester {
+
+    MachineModel machine;
+    Code code;
+    Map<Integer, String> errors;
+
+    @Before
+    public void setup() {
+        machine = new MachineModel();
+        code = new Code();
+        errors = new TreeMap<>();
+    }
+
+    private boolean load(String text) throws IOException {
+        return Loader.load(machine, code,
+                Channels.newChannel(new ByteArrayInputStream(text.getBytes())), errors);
+    }
+
+    @Test
+    // Test the code and data sections either side of the -1 separator
+    public void testLoadCodeAndData() throws IOException {
+        assertTrue(load("1 5 0\n3 1F 1\nf 0 0\n-1\n0 A\n1F -3\n"));
+        assertEquals("Program size", 3, code.getProgramSize());
+        assertEquals("Opcode", 0x3, code.getOp(1));
+        assertEquals("Argument", 0x1F, code.getArg(1));
+        assertEquals("Level", 1, code.getIndirectionLevel(1));
+        assertEquals("Data value", 10, machine.getData(0));
+        assertEquals("Negative data value", -3, machine.getData(0x1F));
+    }
+
+    @Test
+    // Test CRLF line ends, extra spaces and a last line without a line end
+    public void testLoadLineEnds() throws IOException {
+        assertTrue(load("  1\t-7   2 extra\r\n-1\r\n2 ffff"));
+        assertEquals("Argument", -7, code.getArg(0));
+        assertEquals("Level", 2, code.getIndirectionLevel(0));
+        assertEquals("Data value", 0xFFFF, machine.getData(2));
+    }
+
+    @Test
+    // Test the extreme values that fit in an int
+    public void testLoadIntRange() throws IOException {
+        assertTrue(load("-1\n0 7FFFFFFF\n1 -80000000\n"));
+        assertEquals(Integer.MAX_VALUE, machine.getData(0));
+        assertEquals(Integer.MIN_VALUE, machine.getData(1));
+        assertFalse(load("-1\n0 80000000\n"));
+        assertEquals("Error on line 2: value is out of range", errors.get(2));
+    }
+
+    @Test
+    // Test a missing level is reported with its line number
+    public void testLoadMissingValue() throws IOException {
+        assertFalse(load("1 5 0\n3 1\n"));
+        assertEquals("Error on line 2: missing indirection level", errors.get(2));
+    }
+
+    @Test
+    // Test a blank line is an error, as it was with Scanner
+    public void testLoadBlankLine() throws IOException {
+        assertFalse(load("1 5 0\n\n-1\n"));
+        assertEquals("Error on line 2: missing opcode or address", errors.get(2));
+    }
+
+    @Test
+    // Test bad hex and bad addresses
+    public void testLoadBadValues() throws IOException {
+        assertFalse(load("1 5G 0\n"));
+        assertEquals("Error on line 1: argument is not a hex number", errors.get(1));
+        setup();
+        assertFalse(load("-1\n200 1\n"));
+        assertEquals("Error on line 2: address 200 is outside data memory", errors.get(2));
+    }
+}
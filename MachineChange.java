@@ -0,0 +1,34 @@
+package pippin;
+
+/**
+ * Sent by MachineView to its observers after the machine has executed one
+ * or more instructions, so that the views only redraw what changed: the data
+ * addresses written and the old and new program counter. Observers receiving
+ * any other notification redraw everything.
+ */
+public class MachineChange {
+	private int[] changedAddresses;
+	private int oldProgramCounter;
+	private int newProgramCounter;
+
+	public MachineChange(int[] changedAddresses, int oldProgramCounter, int newProgramCounter) {
+		this.changedAddresses = changedAddresses;
+		this.oldProgramCounter = oldProgramCounter;
+		this.newProgramCounter = newProgramCounter;
+	}
+
+	/**
+	 * @return the data addresses written, in increasing order
+	 */
+	public int[] getChangedAddresses() {
+		return changedAddresses;
+	}
+
+	public int getOldProgramCounter() {
+		return oldProgramCounter;
+	}
+
+	public int getNewProgramCounter() {
+		return newProgramCounter;
+	}
+}
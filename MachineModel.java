@@ -8,31 +8,398 @@ import java.util.TreeMap;
 
 public class MachineModel extends Observable {
     public class Registers {
-        private int accumulator;
-        private int programCounter;
+        int accumulator;
+        int programCounter;
     }
 
     public final Map<Integer, Instruction> INSTRUCTION_MAP = new TreeMap<>();
+    private Instruction[] dispatch;
     private Registers cpu = new Registers();
     private Memory memory = new Memory();
-    private boolean withGUI = false;
     private Code code;
     private boolean running = false;
+    private long stepCount = 0;
+    private volatile boolean cancelled = false;
+    private StopReason stopReason;
+    private ExecutionStats stats;
+    private Profiler profiler;
+    /** the code decoded for run(), made when the code is promoted */
+    private CompiledCode compiled;
+    /** true once a loop in the code is hot, so run() no longer interprets it */
+    private boolean promoted = false;
+    /** the code and its version that promoted and loopCounts apply to */
+    private Code tieredCode;
+    private int tieredVersion;
+    /** the number of backward jumps taken to each address while interpreting */
+    private int[] loopCounts;
+    private int hotLoopThreshold = HOT_LOOP_THRESHOLD;
+    /** true if run() executes the code translated to JVM bytecode */
+    private boolean bytecodeTranslation = false;
+    /** the registers passed to the translated code */
+    private final int[] translatedRegisters = new int[4];
+    /** number of instructions run between checks of the run limits */
+    public static final int CHECK_INTERVAL = 4096;
+    /** default number of backward jumps to one address that makes its loop hot */
+    public static final int HOT_LOOP_THRESHOLD = 1000;
     
     public void step() {
     	int pc = cpu.programCounter;
-    	int opcode = code.getOp(pc);
-    	int arg = code.getArg(pc);
-    	int indirectionLevel = code.getIndirectionLevel(pc);
-    	get(opcode).execute(arg, indirectionLevel);   	
+    	boolean accumulatorZero = cpu.accumulator == 0;
+    	long word = code.fetch(pc);
+    	if (code.isVerified()) {
+    		executeVerified(word);
+    	} else {
+    		instruction(Code.op(word)).execute(Code.arg(word), Code.level(word));
+    	}
+    	stepCount++;
+    	if (stats != null) {
+    		stats.count(Code.op(word), Code.level(word));
+    	}
+    	if (profiler != null) {
+    		profiler.count(pc, Code.op(word), accumulatorZero);
+    	}
+    }
+    
+    /**
+     * @return the Instruction for the opcode
+     * @throws IllegalArgumentException if there is no instruction with that
+     * opcode
+     */
+    Instruction instruction(int op) {
+    	Instruction instruction = op < dispatch.length ? dispatch[op] : null;
+    	if (instruction == null) {
+    		throw new IllegalArgumentException("Illegal opcode " + Integer.toHexString(op).toUpperCase());
+    	}
+    	return instruction;
+    }
+
+    /**
+     * Executes one instruction of code that Verifier has accepted, so the
+     * opcode, the indirection level and any constant direct address are
+     * known to be legal and are not checked again. What depends on the
+     * data is checked as in the Instruction for the opcode, and ROT, which
+     * is rare and checks only data, is executed by that Instruction.
+     * @param word the packed instruction
+     */
+    private void executeVerified(long word) {
+    	int arg = Code.arg(word);
+    	int level = Code.level(word);
+    	switch (Code.op(word)) {
+    	case 0x0: // NOP
+    		cpu.programCounter++;
+    		break;
+    	case 0x1: // LOD
+    		cpu.accumulator = operand(arg, level);
+    		cpu.programCounter++;
+    		break;
+    	case 0x2: // STO
+    		memory.setData(level == 1 ? arg : memory.getData(arg), cpu.accumulator);
+    		cpu.programCounter++;
+    		break;
+    	case 0x3: // ADD
+    		cpu.accumulator += operand(arg, level);
+    		cpu.programCounter++;
+    		break;
+    	case 0x4: // SUB
+    		cpu.accumulator -= operand(arg, level);
+    		cpu.programCounter++;
+    		break;
+    	case 0x5: // MUL
+    		cpu.accumulator *= operand(arg, level);
+    		cpu.programCounter++;
+    		break;
+    	case 0x6: { // DIV
+    		int divisor = operand(arg, level);
+    		if (divisor == 0) {
+    			throw new DivideByZeroException("Division by zero");
+    		}
+    		cpu.accumulator /= divisor;
+    		cpu.programCounter++;
+    		break;
+    	}
+    	case 0x7: { // AND
+    		int value = operand(arg, level);
+    		cpu.accumulator = cpu.accumulator != 0 && value != 0 ? 1 : 0;
+    		cpu.programCounter++;
+    		break;
+    	}
+    	case 0x8: // NOT
+    		cpu.accumulator = cpu.accumulator == 0 ? 1 : 0;
+    		cpu.programCounter++;
+    		break;
+    	case 0x9: // CMPZ
+    		cpu.accumulator = memory.getData(arg) == 0 ? 1 : 0;
+    		cpu.programCounter++;
+    		break;
+    	case 0xA: // CMPL
+    		cpu.accumulator = memory.getData(arg) < 0 ? 1 : 0;
+    		cpu.programCounter++;
+    		break;
+    	case 0xB: // JUMP
+    		cpu.programCounter = operand(arg, level);
+    		break;
+    	case 0xC: { // JMPZ
+    		int target = operand(arg, level);
+    		cpu.programCounter = cpu.accumulator == 0 ? target : cpu.programCounter + 1;
+    		break;
+    	}
+    	case 0xF: // HALT
+    		halt();
+    		break;
+    	default:
+    		dispatch[Code.op(word)].execute(arg, level);
+    	}
+    }
+
+    /**
+     * Executes instructions from the current program counter until the
+     * program halts or maxSteps instructions have been executed. The
+     * instructions are looked up in an array indexed by opcode, so the
+     * loop does no boxing and no map lookups.
+     * @param maxSteps the largest number of instructions to execute
+     * @return the number of instructions that were executed
+     */
+    public long run(long maxSteps) {
+    	return run(maxSteps, 0);
+    }
+
+    /**
+     * Executes instructions from the current program counter until the
+     * program halts, maxSteps instructions have been executed, the timeout
+     * expires or cancel() is called. The limits are only checked every
+     * CHECK_INTERVAL instructions so they cost next to nothing per step.
+     * getStopReason() tells which of these ended the run.
+     * @param maxSteps the largest number of instructions to execute
+     * @param timeoutMillis wall-clock limit in milliseconds, 0 for none
+     * @return the number of instructions that were executed
+     */
+    public long run(long maxSteps, long timeoutMillis) {
+    	long start = System.nanoTime();
+    	long timeout = timeoutMillis * 1_000_000L;
+    	long steps = 0;
+    	running = true;
+    	stopReason = null;
+    	// a cancel made while no run was going on, say just after the last one halted, is stale
+    	cancelled = false;
+    	try {
+    		while (true) {
+    			long chunk = Math.min(CHECK_INTERVAL, maxSteps - steps);
+    			steps += stats == null && profiler == null ? runTieredChunk(chunk) : runInstrumentedChunk(chunk);
+    			if (!running) {
+    				stopReason = StopReason.HALTED;
+    				break;
+    			}
+    			if (steps >= maxSteps) {
+    				stopReason = StopReason.STEP_LIMIT;
+    				break;
+    			}
+    			if (cancelled) {
+    				cancelled = false;
+    				stopReason = StopReason.CANCELLED;
+    				break;
+    			}
+    			if (timeout > 0 && System.nanoTime() - start >= timeout) {
+    				stopReason = StopReason.TIMEOUT;
+    				break;
+    			}
+    		}
+    	} finally {
+    		if (stats != null) {
+    			stats.addTime(System.nanoTime() - start);
+    		}
+    	}
+    	return steps;
+    }
+
+    /**
+     * Executes up to chunk instructions in the current tier. Code starts out
+     * interpreted, which costs nothing up front, and is promoted to the
+     * compiled or translated tier once one of its loops is hot. The tier
+     * changes between chunks, so a long run switches over part way through.
+     * A change to the code sends it back to the interpreter.
+     * @return the number of instructions executed
+     */
+    private long runTieredChunk(long chunk) {
+    	if (code == null) {
+    		throw new IllegalStateException("Coding error: no code is attached");
+    	}
+    	if (code != tieredCode || code.getVersion() != tieredVersion) {
+    		tieredCode = code;
+    		tieredVersion = code.getVersion();
+    		loopCounts = new int[code.getProgramSize()];
+    		promoted = hotLoopThreshold == 0;
+    	}
+    	if (!promoted) {
+    		return runInterpretedChunk(chunk);
+    	}
+    	return bytecodeTranslation ? runTranslatedChunk(chunk) : runChunk(chunk);
+    }
+
+    /**
+     * Executes up to chunk instructions one at a time, counting the backward
+     * jumps taken to each address. Stops early on HALT, or when a count
+     * reaches the hot loop threshold, which promotes the code.
+     * @return the number of instructions executed
+     */
+    private long runInterpretedChunk(long chunk) {
+    	boolean verified = code.isVerified();
+    	int[] counts = loopCounts;
+    	long steps = 0;
+    	try {
+    		while (steps < chunk) {
+    			int pc = cpu.programCounter;
+    			long word = code.fetch(pc);
+    			if (verified) {
+    				executeVerified(word);
+    			} else {
+    				instruction(Code.op(word)).execute(Code.arg(word), Code.level(word));
+    			}
+    			steps++;
+    			int to = cpu.programCounter;
+    			// only a jump moves backward; HALT leaves the program counter alone
+    			if (to <= pc) {
+    				if (!running) {
+    					break;
+    				}
+    				if (to >= 0 && ++counts[to] >= hotLoopThreshold) {
+    					promoted = true;
+    					break;
+    				}
+    			}
+    		}
+    	} finally {
+    		stepCount += steps;
+    	}
+    	return steps;
     }
+
+    /**
+     * Executes up to chunk instructions, stopping early on HALT, on the
+     * compiled form of the code. A superinstruction is only used if all of
+     * it fits in the chunk, so the run can stop after any instruction.
+     * @return the number of instructions executed
+     */
+    private long runChunk(long chunk) {
+    	if (compiled == null || !compiled.isCurrent(code)) {
+    		compiled = new CompiledCode(this, cpu, memory, code);
+    	}
+    	CompiledCode.Node node = compiled.at(cpu.programCounter);
+    	long steps = 0;
+    	try {
+    		while (steps < chunk) {
+    			if (node.length > chunk - steps) {
+    				node = node.single;
+    			}
+    			CompiledCode.Node next = node.exec();
+    			steps += node.length;
+    			if (next == null) {
+    				break; // halted
+    			}
+    			node = next;
+    		}
+    	} finally {
+    		stepCount += steps;
+    	}
+    	return steps;
+    }
+
+    /**
+     * Same as runChunk(chunk) but on the code translated to JVM bytecode.
+     * The translated code returns at every instruction it cannot execute
+     * safely, which is then executed here by the interpreter.
+     * @return the number of instructions executed
+     */
+    private long runTranslatedChunk(long chunk) {
+    	BytecodeTranslator.Translation translation = code.getTranslation();
+    	int[] registers = translatedRegisters;
+    	int[] data = memory.getData();
+    	long steps = 0;
+    	try {
+    		while (steps < chunk) {
+    			registers[TranslatedCode.ACCUMULATOR] = cpu.accumulator;
+    			registers[TranslatedCode.PROGRAM_COUNTER] = cpu.programCounter;
+    			registers[TranslatedCode.LAST_STORE] = -1;
+    			steps += translation.code.run(data, registers, chunk - steps);
+    			cpu.accumulator = registers[TranslatedCode.ACCUMULATOR];
+    			cpu.programCounter = registers[TranslatedCode.PROGRAM_COUNTER];
+    			if (registers[TranslatedCode.LAST_STORE] >= 0) {
+    				memory.markWritten(translation.storeTargets, registers[TranslatedCode.LAST_STORE]);
+    			}
+    			int status = registers[TranslatedCode.STATUS];
+    			if (status == TranslatedCode.STATUS_HALTED) {
+    				halt();
+    				break;
+    			}
+    			if (status == TranslatedCode.STATUS_BUDGET || steps >= chunk) {
+    				break;
+    			}
+    			long word = code.fetch(cpu.programCounter);
+    			instruction(Code.op(word)).execute(Code.arg(word), Code.level(word));
+    			steps++;
+    			if (!running) {
+    				break;
+    			}
+    		}
+    	} finally {
+    		stepCount += steps;
+    	}
+    	return steps;
+    }
+
+    /**
+     * Same as runChunk(chunk) but also records each instruction in the
+     * attached stats and profiler. Kept separate so that runs without
+     * them pay nothing for the instrumentation.
+     */
+    private long runInstrumentedChunk(long chunk) {
+    	long steps = 0;
+    	try {
+    		while (running && steps < chunk) {
+    			int pc = cpu.programCounter;
+    			boolean accumulatorZero = cpu.accumulator == 0;
+    			long word = code.fetch(pc);
+    			int op = Code.op(word);
+    			int level = Code.level(word);
+    			instruction(op).execute(Code.arg(word), level);
+    			if (stats != null) {
+    				stats.count(op, level);
+    			}
+    			if (profiler != null) {
+    				profiler.count(pc, op, accumulatorZero);
+    			}
+    			steps++;
+    		}
+    	} finally {
+    		stepCount += steps;
+    	}
+    	return steps;
+    }
+
+    /**
+     * Asks the current call to run to stop. Safe to call from any thread.
+     * A cancel made when no run is going on has no effect.
+     */
+    public void cancel() {
+    	cancelled = true;
+    }
+
+    /**
+     * @return why the last call to run returned, or null if it ended with
+     * an exception or run has not been called
+     */
+    public StopReason getStopReason() {
+    	return stopReason;
+    }
+
     public void clear() {
     	memory.clear();
-    	if (code != null){
-    		code.clear();
-    	}
+    	// the Code may be shared with other machines, so it is dropped, not emptied
+    	code = null;
+    	compiled = null;
+    	tieredCode = null;
     	cpu.accumulator = 0;
     	cpu.programCounter = 0;
+    	stepCount = 0;
     }
     
     public void setRunning(boolean running){
@@ -43,14 +410,147 @@ public class MachineModel extends Observable {
     	return running;
     }
     
+    /**
+     * Attaches the object that collects per-opcode counts, or detaches it
+     * if stats is null. Without stats the interpreter does no counting.
+     * @param stats the stats to add to
+     */
+    public void setStats(ExecutionStats stats){
+    	this.stats = stats;
+    }
+    
+    /**
+     * Makes run() execute hot code translated to JVM bytecode by
+     * BytecodeTranslator rather than on the pre-decoded nodes. The
+     * translation is made when the code is promoted and kept with the Code,
+     * so it pays off for long runs of a program that is not being edited.
+     * step() always interprets.
+     * @param on true to run the translated code
+     */
+    public void setBytecodeTranslation(boolean on){
+    	bytecodeTranslation = on;
+    }
+
+    public boolean isBytecodeTranslation(){
+    	return bytecodeTranslation;
+    }
+
+    /**
+     * Sets how many backward jumps to one address make a loop hot and
+     * promote the code out of the interpreter. The counts start again
+     * whenever the code changes.
+     * @param threshold the number of jumps, 0 to promote before running
+     */
+    public void setHotLoopThreshold(int threshold){
+    	if (threshold < 0) {
+    		throw new IllegalArgumentException("The hot loop threshold cannot be negative");
+    	}
+    	hotLoopThreshold = threshold;
+    	tieredCode = null;
+    }
+
+    public int getHotLoopThreshold(){
+    	return hotLoopThreshold;
+    }
+
+    /**
+     * @return the tier run() executes the current code in. The promoted
+     * tiers keep no state of their own outside the registers and memory,
+     * so step() can always interpret the next instruction, and a later run
+     * continues in the promoted tier.
+     */
+    public ExecutionTier getTier(){
+    	if (code == null || code != tieredCode || code.getVersion() != tieredVersion || !promoted) {
+    		return ExecutionTier.INTERPRETED;
+    	}
+    	return bytecodeTranslation ? ExecutionTier.TRANSLATED : ExecutionTier.COMPILED;
+    }
+
+    public ExecutionStats getStats(){
+    	return stats;
+    }
+    
+    /**
+     * Attaches the per-address profiler, or detaches it if profiler is null.
+     * @param profiler the profiler to add to
+     */
+    public void setProfiler(Profiler profiler){
+    	this.profiler = profiler;
+    }
+    
+    public Profiler getProfiler(){
+    	return profiler;
+    }
+    
+    /**
+     * Attaches the code, which Verifier checks now unless it was checked
+     * since it last changed
+     * @param code the program
+     */
     public void setCode(Code code){
     	this.code = code;
+    	verify();
+    }
+
+    /**
+     * Verifies the attached code up front, so that the first step does not
+     * pay for it. Code changed later is verified again when it next runs.
+     */
+    private void verify(){
+    	if (code != null) {
+    		code.isVerified();
+    	}
     }
     
     public Code getCode(){
     	return code;
     }
     
+    /**
+     * Resets the registers and replaces the data memory and code with
+     * those of the program
+     * @param program the program to install
+     */
+    public void setProgram(Program program){
+    	memory.setAll(program.getData());
+    	code = program.getCode();
+    	verify();
+    	cpu.accumulator = 0;
+    	cpu.programCounter = 0;
+    	stepCount = 0;
+    }
+    
+    /**
+     * Saves the registers, data memory and code. Only the memory pages
+     * written since the last snapshot or restore are copied.
+     * @return the saved state
+     */
+    public Snapshot snapshot(){
+    	return new Snapshot(cpu.accumulator, cpu.programCounter, stepCount, code, memory.snapshotPages());
+    }
+
+    /**
+     * Puts the machine back in a state saved by snapshot. Only the memory
+     * pages that can differ from the snapshot are copied back.
+     * @param snapshot the saved state
+     */
+    public void restore(Snapshot snapshot){
+    	memory.restorePages(snapshot.getPages());
+    	code = snapshot.getCode();
+    	verify();
+    	cpu.accumulator = snapshot.getAccumulator();
+    	cpu.programCounter = snapshot.getProgramCounter();
+    	stepCount = snapshot.getStepCount();
+    }
+
+    /**
+     * @return the number of instructions completed since the machine was
+     * created or last cleared
+     */
+    public long getStepCount(){
+    	return stepCount;
+    }
+    
     public int getData(int index) {
         return memory.getData(index);
     }
@@ -59,6 +559,19 @@ public class MachineModel extends Observable {
         memory.setData(index, value);
     }
 
+    /**
+     * Resolves the operand of a memory-operand instruction in one loop:
+     * the argument itself at level 0, memory[arg] at level 1 and
+     * memory[memory[arg]] at level 2. The caller validates the level.
+     */
+    private int operand(int arg, int level) {
+        int value = arg;
+        for (int i = 0; i < level; i++) {
+            value = memory.getData(value);
+        }
+        return value;
+    }
+
     public Instruction get(Integer key) {
         return INSTRUCTION_MAP.get(key);
     }
@@ -87,21 +600,23 @@ public class MachineModel extends Observable {
     	 return memory.getChangedIndex();
     }
 
+    /**
+     * @return the data addresses written since the last call, in increasing
+     * order, as returned by Memory.drainChanges
+     */
+    public int[] drainChanges() {
+    	 return memory.drainChanges();
+    }
+
     public void halt() {
-    	 if(withGUI) {
-    		 running = false;
-    	 } else {
-    		 System.exit(0);
-    	 }
+    	 running = false;
     }
 
     public void clearMemory() {
     	 memory.clear();
     } 
 
-    public MachineModel(boolean withGUI) {
-    	this.withGUI = withGUI;
-    	
+    public MachineModel() {
         //INSTRUCTION_MAP entry for "NOP"
     	// no operation
         INSTRUCTION_MAP.put(0x0,(arg, level) -> {
@@ -118,12 +633,8 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in LOD instruction");
             }
-            if (level > 0) {
-                INSTRUCTION_MAP.get(0x1).execute(memory.getData(arg), level-1); 
-            } else { 
-                cpu.accumulator = arg;
-                cpu.programCounter ++;
-            }
+            cpu.accumulator = operand(arg, level);
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "STO"
@@ -131,12 +642,9 @@ public class MachineModel extends Observable {
         INSTRUCTION_MAP.put(0x2,(arg, level) -> {
             if(level < 1 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in STO instruction");
-            } if (level == 1){
-            	memory.setData(arg, cpu.accumulator);
-                cpu.programCounter ++;
-            } else {
-            	INSTRUCTION_MAP.get(0x2).execute(memory.getData(arg), level-1); 
             }
+            memory.setData(operand(arg, level-1), cpu.accumulator);
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "ADD"
@@ -145,12 +653,8 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in ADD instruction");
             }
-            if (level == 0) {
-            	cpu.accumulator += arg;
-                cpu.programCounter ++;
-            } else { 
-            	INSTRUCTION_MAP.get(0x3).execute(memory.getData(arg), level-1); 
-            }
+            cpu.accumulator += operand(arg, level);
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "SUB"
@@ -159,12 +663,8 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in SUB instruction");
             }
-            if (level == 0) {
-            	cpu.accumulator -= arg;
-                cpu.programCounter ++;
-            } else {  
-            	INSTRUCTION_MAP.get(0x4).execute(memory.getData(arg), level-1);
-            }
+            cpu.accumulator -= operand(arg, level);
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "MUL"
@@ -173,12 +673,8 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in MUL instruction");
             }
-            if (level == 0) {
-            	cpu.accumulator *= arg;
-                cpu.programCounter ++;
-            } else { 
-            	INSTRUCTION_MAP.get(0x5).execute(memory.getData(arg), level-1); 
-            }
+            cpu.accumulator *= operand(arg, level);
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "DIV"
@@ -187,16 +683,12 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 2) {
                 throw new IllegalArgumentException("Illegal indirection level in DIV instruction");
             }
-            if (level == 0) {
-            	if (arg == 0){
-            		throw new DivideByZeroException("Division by zero");
-            	} else {
-            	cpu.accumulator /= arg;
-            	}
-                cpu.programCounter ++;
-            } else {
-            	INSTRUCTION_MAP.get(0x6).execute(memory.getData(arg), level-1);
+            int divisor = operand(arg, level);
+            if (divisor == 0){
+                throw new DivideByZeroException("Division by zero");
             }
+            cpu.accumulator /= divisor;
+            cpu.programCounter ++;
         });
 
         //INSTRUCTION_MAP entry for "AND"
@@ -205,16 +697,14 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 1) {
                 throw new IllegalArgumentException("Illegal indirection level in AND instruction");
             }
-            if (level == 0){
-            	if(cpu.accumulator != 0 && arg != 0) {
-                    cpu.accumulator = 1;            
-                } else {
-                    cpu.accumulator = 0;            
-                }
-                cpu.programCounter ++; 
+            // the operand is always read, so a bad address fails whatever the accumulator
+            int value = operand(arg, level);
+            if(cpu.accumulator != 0 && value != 0) {
+                cpu.accumulator = 1;            
             } else {
-            	INSTRUCTION_MAP.get(0x7).execute(memory.getData(arg), level-1); 
+                cpu.accumulator = 0;            
             }
+            cpu.programCounter ++; 
         });
         
         //INSTRUCTION_MAP entry for "JUMP"
@@ -223,11 +713,7 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 1) {
                 throw new IllegalArgumentException("Illegal indirection level in JUMP instruction");
             }
-            if (level == 0) {
-            	cpu.programCounter = arg;
-            } else {  
-            	INSTRUCTION_MAP.get(0xB).execute(memory.getData(arg), level-1); 
-            }
+            cpu.programCounter = operand(arg, level);
         });
         
         //INSTRUCTION_MAP entry for "JMPZ"
@@ -236,15 +722,12 @@ public class MachineModel extends Observable {
             if(level < 0 || level > 1) {
                 throw new IllegalArgumentException("Illegal indirection level in JMPZ instruction");
             }
-            if (level == 0) {
-            	if(cpu.accumulator == 0) {
-                    cpu.programCounter = arg;
-                } else {
-                    cpu.programCounter++;               
-                }            	           
+            int target = operand(arg, level);
+            if(cpu.accumulator == 0) {
+                cpu.programCounter = target;
             } else {
-            	INSTRUCTION_MAP.get(0xC).execute(memory.getData(arg), level-1); 
-            }
+                cpu.programCounter++;               
+            }            	           
         });
 
         //INSTRUCTION_MAP entry for "NOT"
@@ -295,55 +778,48 @@ public class MachineModel extends Observable {
        //INSTRUCTION_MAP entry for ROT
        // Using direct addressing (So only works if level = 1), assigns start, length and move to the data in arg, arg+1, arg+2 respectively.
        //If start<0,length<0,start+length-1>= data size of memory, start<= arg+2, start+length-1<=arg, throw illegal
-       //argument exception. Check is move is negative or positive. If negative, starting from the top(Start), use the accumulator
-       // as a temp placeholder and move the data in the position before for whatever amount of |move| until start+length -1
-       // is reached. If positive,starting from the last memory location(start+length-1), move each data up one memory
-       // location until start is reached using accumulater as a temp place holder for whatever amount of move.
+       //argument exception. If move is negative the block from start to start+length-1 is rotated |move| places
+       // towards start, if positive move places towards start+length-1. The rotation is done in one pass by
+       // Memory.rotate. As in the original one-place-at-a-time version, the accumulator is left holding the
+       // value that was moved last: the one now at start+length-1 for a negative move, at start for a positive move.
        INSTRUCTION_MAP.put(0x14, (arg, level) -> {
     	   if (level != 1){
     		   throw new IllegalArgumentException("Illegal indirection level in ROT instruction");
     	   }
-    	   else{
-	    	   int start = memory.getData(arg);
-	    	   int length = memory.getData(arg+1);
-	    	   int move = memory.getData(arg+2);
-	    	   if (start < 0 || length < 0 || start+length-1 >= memory.DATA_SIZE || start <= arg+2 ||
-	    			   start + length -1 <= arg){
-	    		   throw new IllegalArgumentException("Values of start, length or move are not correct in ROT instruction");  
-	    	   } else {
-	    		   if (move < 0){
-	    			   for(int i = move; i<0; i++){
-	    				   cpu.accumulator = memory.getData(start);
-	    				   for (int k=start; k<start+length-1; k++){
-	    				   		memory.setData(k, memory.getData(k+1));
-	    				   }
-	    				   memory.setData(start+length-1, cpu.accumulator);
-	    		   }
-	    		   } else if (move > 0){
-	    			   for (int i = move; i>0; i--){
-	    				   cpu.accumulator = memory.getData(start+length-1);
-	    				   for (int k=start+length-1; k > 0; k--){
-	    					   memory.setData(k, memory.getData(k-1));
-	    				   }
-	    				   memory.setData(start, cpu.accumulator);
-	    			   }
-	    			   
-	    			}
-	    		  }
-    	   		}
-    	   		cpu.programCounter++;
-    		  });
+    	   int start = memory.getData(arg);
+    	   int length = memory.getData(arg+1);
+    	   int move = memory.getData(arg+2);
+    	   if (start < 0 || length < 0 || start+length-1 >= Memory.DATA_SIZE || start <= arg+2 ||
+    			   start + length -1 <= arg){
+    		   throw new IllegalArgumentException("Values of start, length or move are not correct in ROT instruction");  
+    	   }
+    	   if (length > 0 && move != 0){
+    		   memory.rotate(start, length, move);
+    		   if (move < 0){
+    			   cpu.accumulator = memory.getData(start+length-1);
+    		   } else {
+    			   cpu.accumulator = memory.getData(start);
+    		   }
+    	   }
+    	   cpu.programCounter++;
+       });
         
        //INSTRUCTION_MAP entry for "HALT"
        INSTRUCTION_MAP.put(0xF, (arg,level) -> {
     	   halt();
        });   
+       
+       // dense copy of INSTRUCTION_MAP used by step() and run()
+       int size = 0;
+       for (Integer key : INSTRUCTION_MAP.keySet()) {
+    	   size = Math.max(size, key + 1);
+       }
+       dispatch = new Instruction[size];
+       for (Integer key : INSTRUCTION_MAP.keySet()) {
+    	   dispatch[key] = INSTRUCTION_MAP.get(key);
+       }
     }
     
-    public MachineModel() {
-    	this(false);
-    }
-  
 }
 
 
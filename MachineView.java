@@ -14,12 +14,14 @@ import java.util.Map;
 import java.util.Observable;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class MachineView extends Observable {
@@ -37,10 +39,23 @@ public class MachineView extends Observable {
 	private MenuBarBuilder menuBuilder;
 	private JFrame frame;
 	private States state;
-	private static final int TICK = 500; // timer tick = 1/2 second
+	private static final long RATE_NANOS = 500_000_000L; // instructions per second are measured over 1/2 second
+	private Speed speed = Speed.DEFAULT;
+	private javax.swing.Timer timer;
+	private long rateStartNanos;
+	private long rateStartSteps;
+	private long instructionsPerSecond = 0;
+	private static final int FRAME_MILLIS = 40; // display refresh while running in the background, 25 per second
 	private boolean autoStepOn = false;
 	private File currentlyExecutingFile = null;
+	private Snapshot loadedState = null; // the machine just after loading, for reload()
 	private boolean running = false;
+	private Thread worker = null; // runs the machine for execute(), null when it is not running
+	private volatile boolean pauseRequested = false; // also seen by the worker between two calls to run
+	private AtomicBoolean framePending = new AtomicBoolean(); // a frame is waiting for the event thread
+	private Snapshot shownState = null; // what the views show while the worker owns the model
+	private int shownChangedIndex = -1;
+	private int shownPC = 0;
 	
 	public void setRunning(boolean b) {
 		running = b;
@@ -58,6 +73,7 @@ public class MachineView extends Observable {
 	public void setAutoStepOn(boolean b) {
 		autoStepOn = b;
 		if(autoStepOn) {
+			resetRate();
 			state = States.AUTO_STEPPING;
 		} else {
 			state = States.PROGRAM_LOADED_NOT_AUTOSTEPPING;
@@ -75,18 +91,83 @@ public class MachineView extends Observable {
 		return state;
 	}
 	public int getData(int index) {
+		if(shownState != null) {
+			return shownState.getData(index);
+		}
 		return model.getData(index);
 	}
 
 	public int getProgramCounter() {
+		if(shownState != null) {
+			return shownState.getProgramCounter();
+		}
 		return model.getProgramCounter();
 	}
 
 	public int getAccumulator() {
+		if(shownState != null) {
+			return shownState.getAccumulator();
+		}
 		return model.getAccumulator();
 	}
 
+	/**
+	 * @return the number of instructions executed since the program was loaded
+	 */
+	public long getStepCount() {
+		if(shownState != null) {
+			return shownState.getStepCount();
+		}
+		return model.getStepCount();
+	}
+
+	/**
+	 * @return the speed achieved by auto-stepping or Go, measured about twice
+	 * a second, 0 when neither is running
+	 */
+	public long getInstructionsPerSecond() {
+		return autoStepOn || worker != null ? instructionsPerSecond : 0;
+	}
+
+	private void resetRate() {
+		rateStartNanos = System.nanoTime();
+		rateStartSteps = getStepCount();
+		instructionsPerSecond = 0;
+	}
+
+	private void updateRate() {
+		long elapsed = System.nanoTime() - rateStartNanos;
+		if(elapsed >= RATE_NANOS) {
+			long steps = getStepCount();
+			instructionsPerSecond = (steps - rateStartSteps) * 1_000_000_000L / elapsed;
+			rateStartNanos += elapsed;
+			rateStartSteps = steps;
+		}
+	}
+
+	public Speed getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Changes the auto-step speed, taking effect from the next timer tick.
+	 * @param speed the new speed
+	 */
+	public void setSpeed(Speed speed) {
+		if(speed == this.speed) {
+			return;
+		}
+		this.speed = speed;
+		timer.setDelay(speed.getTickMillis());
+		resetRate();
+		setChanged();
+		notifyObservers();
+	}
+
 	public int getChangedIndex() {
+		if(shownState != null) {
+			return shownChangedIndex;
+		}
 		return model.getChangedIndex();
 	}
 	
@@ -104,7 +185,7 @@ public class MachineView extends Observable {
 	public static void main(String[] args) {
 		javax.swing.SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
-				new MachineView(new MachineModel(true));
+				new MachineView(new MachineModel());
 			}
 		});
 	}
@@ -194,7 +275,7 @@ public class MachineView extends Observable {
 		state.enter();
 		setChanged();
 		notifyObservers();
-		javax.swing.Timer timer = new javax.swing.Timer(TICK, e -> {if(autoStepOn) step();});
+		timer = new javax.swing.Timer(speed.getTickMillis(), e -> {if(autoStepOn) autoStep();});
 		timer.start();
 		frame.setVisible(true);
 	}
@@ -208,6 +289,7 @@ public class MachineView extends Observable {
 	
 	public void step() {
 		if (model.isRunning()){
+			int oldPC = getProgramCounter();
 			try{
 				model.step();
 			}catch (IllegalArgumentException e) {
@@ -226,27 +308,82 @@ public class MachineView extends Observable {
 				JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
 						"Run time error",JOptionPane.OK_OPTION);
 			}
-			setChanged();
-			notifyObservers();
+			notifyChanges(oldPC);
 		} else {
 			halt();
 		}	
 	}
+
+	/**
+	 * Executes one timer tick's worth of instructions at the current speed.
+	 * A batch is limited to part of the tick so the display keeps up, and
+	 * auto-stepping stops on a runtime error.
+	 */
+	private void autoStep() {
+		if (speed.getStepsPerTick() == 1 || !model.isRunning()){
+			step();
+			return;
+		}
+		int oldPC = getProgramCounter();
+		try{
+			model.run(speed.getStepsPerTick(), speed.getBatchMillis());
+		}catch (IllegalArgumentException | IndexOutOfBoundsException | NullPointerException | DivideByZeroException e) {
+			setAutoStepOn(false);
+			JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
+					"Run time error",JOptionPane.OK_OPTION);
+		}
+		notifyChanges(oldPC);
+		if (!model.isRunning()){
+			halt();
+		}
+	}
+
+	/**
+	 * Tells the observers which data addresses were written since the last
+	 * notification and where the program counter moved from.
+	 * @param oldPC the program counter before the instructions were executed
+	 */
+	private void notifyChanges(int oldPC) {
+		updateRate();
+		setChanged();
+		notifyObservers(new MachineChange(model.drainChanges(), oldPC, getProgramCounter()));
+	}
 	 
 	public void clearAll() {
 		model.clear();
+		loadedState = null;
 		state = States.NOTHING_LOADED;
 		state.enter();
+		model.drainChanges();
 		setChanged();
 		notifyObservers("Clear");
 		
 	}
 	public void toggleAutoStep() {
+		if(worker != null) {
+			pauseRequested = true;
+			model.cancel(); // pauses execute(), the worker tells the views when it has stopped
+			return;
+		}
 		setAutoStepOn(!autoStepOn);
 	}
+	/**
+	 * Puts the machine back as it was just after the executable was loaded,
+	 * without reading the file again.
+	 */
 	public void reload() {
-		clearAll();
-		finalLoad_ReloadStep();
+		if(loadedState == null) {
+			clearAll();
+			finalLoad_ReloadStep();
+			return;
+		}
+		model.restore(loadedState);
+		model.setRunning(true);
+		setRunning(true);
+		setAutoStepOn(false);
+		model.drainChanges();
+		setChanged();
+		notifyObservers("Load Code");
 	}
 	/**
 	 * Translate method reads a source "pasm" file and saves the
@@ -277,7 +414,7 @@ public class MachineView extends Observable {
 			sourceDir = sourceDir.substring(0, lastSlash + 1);
 			outName = outName.substring(lastSlash+1); 
 			filter = new FileNameExtensionFilter(
-					"Pippin Executable Files", "pexe");
+					"Pippin Executable Files", "pexe", BinaryExecutable.EXTENSION);
 			if(executableDir.equals(defaultDir)) {
 				chooser = new JFileChooser(sourceDir);
 			} else {
@@ -346,9 +483,11 @@ public class MachineView extends Observable {
 			clearAll();
 			Loader.load(model, code, currentlyExecutingFile);
 			model.setCode(code);
+			loadedState = model.snapshot();
 			model.setRunning(true);
 			setRunning(true);
 			setAutoStepOn(false);
+			model.drainChanges();
 			setChanged();
 			notifyObservers("Load Code");
 		}catch (IOException e) {
@@ -368,7 +507,7 @@ public class MachineView extends Observable {
 	public void loadFile() {
 		JFileChooser chooser = new JFileChooser(executableDir);
 		FileNameExtensionFilter filter = new FileNameExtensionFilter(
-				"Pippin Executable Files", "pexe");
+				"Pippin Executable Files", "pexe", BinaryExecutable.EXTENSION);
 		chooser.setFileFilter(filter);
 		// CODE TO LOAD DESIRED FILE
 		int openOK = chooser.showOpenDialog(null);
@@ -393,32 +532,72 @@ public class MachineView extends Observable {
 		finalLoad_ReloadStep();
 	}		
 	
+	/**
+	 * Runs the program at full speed on a worker thread until it halts or is
+	 * paused with Run/Pause. While it runs the event thread never touches the
+	 * model: about every FRAME_MILLIS the worker takes a snapshot, which the
+	 * views show, and a frame is skipped if the previous one has not been
+	 * shown yet.
+	 */
 	public void execute() {
-		while (running){
-			if (model.isRunning()){
-				try{
-					model.step();
-				}catch (IllegalArgumentException e) {
-					JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
-					"Run time error",JOptionPane.OK_OPTION);
-				}catch (ArrayIndexOutOfBoundsException e){
-					JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
-							"Run time error",JOptionPane.OK_OPTION);
-				}catch (IndexOutOfBoundsException e){
-					JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
-							"Run time error",JOptionPane.OK_OPTION);
-				}catch (NullPointerException e){
-					JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
-							"Run time error",JOptionPane.OK_OPTION);
-				}catch (DivideByZeroException e){
-					JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + e.getMessage(),
-							"Run time error",JOptionPane.OK_OPTION);
-				}
-			} else {
-				halt();
-			}
+		if (!model.isRunning() || worker != null){
+			return;
 		}
+		shownPC = getProgramCounter();
+		shownState = model.snapshot();
+		shownChangedIndex = model.getChangedIndex();
+		resetRate();
+		state = States.FREE_RUNNING;
+		state.enter();
 		setChanged();
 		notifyObservers();
+		pauseRequested = false;
+		worker = new Thread(this::runInBackground, "Pippin execute");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	private void runInBackground() {
+		RuntimeException error = null;
+		try {
+			do {
+				model.run(Long.MAX_VALUE, FRAME_MILLIS);
+				if (model.getStopReason() == StopReason.TIMEOUT && framePending.compareAndSet(false, true)) {
+					Snapshot snapshot = model.snapshot();
+					int[] changes = model.drainChanges();
+					int changedIndex = model.getChangedIndex();
+					SwingUtilities.invokeLater(() -> showFrame(snapshot, changes, changedIndex));
+				}
+			} while (model.getStopReason() == StopReason.TIMEOUT && !pauseRequested);
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		RuntimeException failure = error;
+		SwingUtilities.invokeLater(() -> finishExecute(failure));
+	}
+
+	private void showFrame(Snapshot snapshot, int[] changes, int changedIndex) {
+		shownState = snapshot;
+		shownChangedIndex = changedIndex;
+		updateRate();
+		setChanged();
+		notifyObservers(new MachineChange(changes, shownPC, snapshot.getProgramCounter()));
+		shownPC = snapshot.getProgramCounter();
+		framePending.set(false);
+	}
+
+	private void finishExecute(RuntimeException error) {
+		worker = null;
+		shownState = null;
+		if (error != null){
+			JOptionPane.showMessageDialog(frame,"Program error from line " + getProgramCounter() + "\n"+ "Exception message: " + error.getMessage(),
+					"Run time error",JOptionPane.OK_OPTION);
+		}
+		notifyChanges(shownPC);
+		if (!model.isRunning()){
+			halt();
+		} else {
+			setRunning(true); // paused
+		}
 	}
 }
@@ -1,9 +1,25 @@
 package pippin;
 
+import java.util.Arrays;
+
 public class Memory {
 	public final static int DATA_SIZE = 512;
+	/**
+	 * Memory is divided into pages for snapshots: a snapshot only copies the
+	 * pages written since the previous one and shares the others with it.
+	 */
+	public final static int PAGE_SIZE = 8;
+	public final static int PAGE_COUNT = DATA_SIZE / PAGE_SIZE;
+	private final static int PAGE_SHIFT = 3;
 	private int[] data = new int[DATA_SIZE];
 	private int changedIndex = -1;
+	private int[] rotateBuffer = new int[DATA_SIZE];
+	/** the pages of the last snapshot taken or restored, null if there is none */
+	private int[][] basePages;
+	/** one bit per page that may differ from basePages */
+	private long dirtyPages = -1L;
+	/** one bit per word written since the last drainChanges */
+	private long[] changedWords = new long[DATA_SIZE / 64];
 	
 	public int getData(int index){
 		return data[index];
@@ -11,12 +27,166 @@ public class Memory {
 	
 	public void setData(int index, int value){
 		data[index] = value;
+		dirtyPages |= 1L << (index >>> PAGE_SHIFT);
+		changedWords[index >>> 6] |= 1L << index;
+		changedIndex = index;
 	}
 	
+	/**
+	 * Rotates data[start..start+length-1] by move places, towards the end of
+	 * the block if move is positive and towards start if it is negative.
+	 * Uses three array copies whatever the size of move: the values that wrap
+	 * around are saved in a buffer, the rest of the block moves up, and the
+	 * buffer is copied to the front of the block.
+	 * @param start first index of the block
+	 * @param length number of values in the block, at least 1
+	 * @param move number of places to rotate
+	 */
+	public void rotate(int start, int length, int move){
+		int shift = move % length;
+		if(shift < 0) {
+			shift += length;
+		}
+		if(shift == 0) {
+			return;
+		}
+		// the last shift values wrap around to the front of the block
+		System.arraycopy(data, start + length - shift, rotateBuffer, 0, shift);
+		System.arraycopy(data, start, data, start + shift, length - shift);
+		System.arraycopy(rotateBuffer, 0, data, start, shift);
+		markDirty(start, start + length - 1);
+		// the value written last when the block was moved one place at a time
+		changedIndex = move < 0 ? start + length - 1 : start;
+	}
+
+	/**
+	 * Replaces the whole of memory
+	 * @param values the new contents, DATA_SIZE values
+	 */
+	public void setAll(int[] values){
+		System.arraycopy(values, 0, data, 0, DATA_SIZE);
+		markDirty(0, DATA_SIZE - 1);
+	}
+
+	/**
+	 * Records writes made straight into the array returned by getData(), as
+	 * if by setData. Code translated by BytecodeTranslator does not say which
+	 * of its store addresses it actually wrote, so it passes all of them and
+	 * some unchanged words may be reported as changed.
+	 * @param addresses the addresses that may have been written
+	 * @param last the address written last
+	 */
+	void markWritten(int[] addresses, int last){
+		for(int index : addresses) {
+			dirtyPages |= 1L << (index >>> PAGE_SHIFT);
+			changedWords[index >>> 6] |= 1L << index;
+		}
+		changedIndex = last;
+	}
+
+	private void markDirty(int first, int last){
+		int firstPage = first >>> PAGE_SHIFT;
+		int lastPage = last >>> PAGE_SHIFT;
+		long upTo = lastPage == PAGE_COUNT - 1 ? -1L : (1L << (lastPage + 1)) - 1;
+		dirtyPages |= upTo & (-1L << firstPage);
+		for(int word = first >>> 6; word <= last >>> 6; word++) {
+			long mask = -1L;
+			if(word == first >>> 6) {
+				mask &= -1L << first;
+			}
+			if(word == last >>> 6 && (last & 63) != 63) {
+				mask &= (1L << (last + 1)) - 1;
+			}
+			changedWords[word] |= mask;
+		}
+	}
+
+	/**
+	 * @return true if a word has been written since the last drainChanges
+	 */
+	public boolean hasChanges(){
+		for(long word : changedWords) {
+			if(word != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the addresses written since the last call, in increasing
+	 * order, and starts recording again. A word that is written several times
+	 * is only returned once. Writes by clear, setAll and a restore count as
+	 * writes of every word they may have changed.
+	 * @return the changed addresses
+	 */
+	public int[] drainChanges(){
+		int count = 0;
+		for(long word : changedWords) {
+			count += Long.bitCount(word);
+		}
+		int[] changes = new int[count];
+		int n = 0;
+		for(int i = 0; i < changedWords.length; i++) {
+			for(long word = changedWords[i]; word != 0; word &= word - 1) {
+				changes[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+			}
+			changedWords[i] = 0;
+		}
+		return changes;
+	}
+
+	/**
+	 * Copies the pages written since the last snapshot or restore, sharing
+	 * the unchanged ones with that snapshot. The returned pages are never
+	 * written to.
+	 * @return the contents of memory, by page
+	 */
+	int[][] snapshotPages(){
+		int[][] pages = basePages == null ? new int[PAGE_COUNT][] : basePages.clone();
+		for(long dirty = dirtyPages; dirty != 0; dirty &= dirty - 1) {
+			int page = Long.numberOfTrailingZeros(dirty);
+			pages[page] = Arrays.copyOfRange(data, page << PAGE_SHIFT, (page + 1) << PAGE_SHIFT);
+		}
+		basePages = pages;
+		dirtyPages = 0;
+		return pages;
+	}
+
+	/**
+	 * Puts back the contents of memory saved by snapshotPages. Only the pages
+	 * written since the last snapshot or restore, and the pages that are not
+	 * shared between that snapshot and this one, are copied.
+	 * @param pages the contents of memory, by page
+	 */
+	void restorePages(int[][] pages){
+		long changed = dirtyPages;
+		if(basePages == null) {
+			changed = -1L;
+		} else if(basePages != pages) {
+			for(int page = 0; page < PAGE_COUNT; page++) {
+				if(basePages[page] != pages[page]) {
+					changed |= 1L << page;
+				}
+			}
+		}
+		for(; changed != 0; changed &= changed - 1) {
+			int page = Long.numberOfTrailingZeros(changed);
+			System.arraycopy(pages[page], 0, data, page << PAGE_SHIFT, PAGE_SIZE);
+			markDirty(page << PAGE_SHIFT, ((page + 1) << PAGE_SHIFT) - 1);
+		}
+		basePages = pages;
+		dirtyPages = 0;
+	}
+
 	int[] getData(){
 		return data;
 	}
 	
+	/**
+	 * @return the address written last, -1 if nothing was written since
+	 * memory was cleared
+	 */
 	public int getChangedIndex(){
 		return changedIndex;
 	}
@@ -25,6 +195,7 @@ public class Memory {
 		for(int i =0; i < data.length; i++){
 			data[i] = 0;
 		}
+		markDirty(0, DATA_SIZE - 1);
 		changedIndex = -1;
 	}
 	
@@ -0,0 +1,57 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemoryTester {
+
+    Memory memory = new Memory();
+
+    @Test
+    // Test the last written address is the changed index
+    public void testChangedIndex() {
+        assertEquals(-1, memory.getChangedIndex());
+        memory.setData(70, 1);
+        memory.setData(3, 1);
+        assertEquals(3, memory.getChangedIndex());
+        memory.clear();
+        assertEquals(-1, memory.getChangedIndex());
+    }
+
+    @Test
+    // Test the changes are drained once, in order and without repeats
+    public void testDrainChanges() {
+        memory.drainChanges();
+        assertFalse(memory.hasChanges());
+        memory.setData(511, 1);
+        memory.setData(64, 2);
+        memory.setData(0, 3);
+        memory.setData(64, 4);
+        assertTrue(memory.hasChanges());
+        assertArrayEquals(new int[] {0, 64, 511}, memory.drainChanges());
+        assertArrayEquals(new int[0], memory.drainChanges());
+    }
+
+    @Test
+    // Test a rotation reports every address of the block
+    public void testRotateChanges() {
+        memory.drainChanges();
+        memory.rotate(60, 70, -1);
+        int[] changes = memory.drainChanges();
+        assertEquals(70, changes.length);
+        assertEquals(60, changes[0]);
+        assertEquals(129, changes[69]);
+        assertEquals(129, memory.getChangedIndex());
+    }
+
+    @Test
+    // Test clear reports the whole of memory
+    public void testClearChanges() {
+        memory.clear();
+        assertEquals(Memory.DATA_SIZE, memory.drainChanges().length);
+    }
+}
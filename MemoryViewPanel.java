@@ -68,9 +68,19 @@ public class MemoryViewPanel implements Observer {
 	
 	@Override
 	public void update(Observable arg0, Object arg1) {
-		for(int i = lower; i < upper; i++) {
-			dataDecimal[i].setText("" + machineView.getData(i));
-			dataHex[i].setText(Integer.toString(machineView.getData(i),16));
+		if(arg1 instanceof MachineChange) {
+			// only the cells that were written are updated
+			for(int i : ((MachineChange)arg1).getChangedAddresses()) {
+				if(i >= lower && i < upper) {
+					dataDecimal[i].setText("" + machineView.getData(i));
+					dataHex[i].setText(Integer.toString(machineView.getData(i),16));
+				}
+			}
+		} else {
+			for(int i = lower; i < upper; i++) {
+				dataDecimal[i].setText("" + machineView.getData(i));
+				dataHex[i].setText(Integer.toString(machineView.getData(i),16));
+			}
 		}
 		if(arg1 != null && arg1.equals("Clear")) {
 			for(int i = lower; i < upper; i++) {
@@ -84,11 +94,15 @@ public class MemoryViewPanel implements Observer {
 				previousColor = -1;
 			}
 		} else {
+			int changed = machineView.getChangedIndex();
+			if(changed == previousColor) {
+				return; // nothing to re-colour or scroll to
+			}
 			if(previousColor  >= lower && previousColor < upper) {
 				dataDecimal[previousColor].setBackground(Color.WHITE);
 				dataHex[previousColor].setBackground(Color.WHITE);
 			}
-			previousColor = machineView.getChangedIndex();
+			previousColor = changed;
 			if(previousColor  >= lower && previousColor < upper) {
 				dataDecimal[previousColor].setBackground(Color.YELLOW);
 				dataHex[previousColor].setBackground(Color.YELLOW);
@@ -2,11 +2,15 @@ package pippin;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 
+import javax.swing.ButtonGroup;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.KeyStroke;
 
 public class MenuBarBuilder implements Observer {
@@ -14,6 +18,7 @@ public class MenuBarBuilder implements Observer {
 	private JMenuItem load = new JMenuItem("Load Program...");
 	private JMenuItem exit = new JMenuItem("Exit");
 	private JMenuItem go = new JMenuItem("Go");
+	private Map<Speed, JRadioButtonMenuItem> speeds = new EnumMap<>(Speed.class);
 	private MachineView machineView;
 	
 	public MenuBarBuilder(MachineView machineView) {
@@ -52,6 +57,16 @@ public class MenuBarBuilder implements Observer {
 				KeyEvent.VK_G, ActionEvent.CTRL_MASK));
 		go.addActionListener(e -> machineView.execute());
 		menu.add(go);
+		menu.addSeparator();
+		ButtonGroup group = new ButtonGroup();
+		for(Speed speed : Speed.values()) {
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem("Auto-step " + speed);
+			item.setSelected(speed == machineView.getSpeed());
+			item.addActionListener(e -> machineView.setSpeed(speed));
+			group.add(item);
+			speeds.put(speed, item);
+			menu.add(item);
+		}
 		return menu;
 	}
 
@@ -60,5 +75,9 @@ public class MenuBarBuilder implements Observer {
 		assemble.setEnabled(machineView.getState().getAssembleFileActive());
 		load.setEnabled(machineView.getState().getLoadFileActive());
 		go.setEnabled(machineView.getState().getStepActive());
+		JRadioButtonMenuItem selected = speeds.get(machineView.getSpeed());
+		if(selected != null && !selected.isSelected()) {
+			selected.setSelected(true);
+		}
 	}	
 }
\ No newline at end of file
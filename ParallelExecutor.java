@@ -0,0 +1,72 @@
+package pippin;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a batch of programs on a fork-join pool. Every task gets its own
+ * MachineModel, so no machine state is shared between threads, and the
+ * results are returned in the same order as the input.
+ */
+public class ParallelExecutor {
+	private int threads;
+
+	public ParallelExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelExecutor(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed");
+		}
+		this.threads = threads;
+	}
+
+	public List<RunResult> runAll(List<Program> programs, long maxSteps, long timeoutMillis) {
+		return map(programs.size(), i -> Runner.run(programs.get(i), maxSteps, timeoutMillis));
+	}
+
+	/**
+	 * Loads and runs each file. Loading is done by the worker threads as well.
+	 */
+	public List<RunResult> runFiles(List<File> files, long maxSteps, long timeoutMillis) {
+		return map(files.size(), i -> Runner.run(files.get(i), maxSteps, timeoutMillis));
+	}
+
+	/**
+	 * Same as runFiles(files, maxSteps, timeoutMillis) with the programs
+	 * taken from a cache shared by all the worker threads.
+	 */
+	public List<RunResult> runFiles(List<File> files, ProgramCache cache, long maxSteps, long timeoutMillis) {
+		return runFiles(files, cache, maxSteps, timeoutMillis, 0);
+	}
+
+	/**
+	 * Same as runFiles(files, cache, maxSteps, timeoutMillis) with each run
+	 * profiled, as by Runner.run, if profileLines is more than 0.
+	 */
+	public List<RunResult> runFiles(List<File> files, ProgramCache cache, long maxSteps, long timeoutMillis, int profileLines) {
+		return map(files.size(), i -> Runner.run(files.get(i), cache, maxSteps, timeoutMillis, profileLines));
+	}
+
+	private List<RunResult> map(int count, IntFunction<RunResult> task) {
+		RunResult[] results = new RunResult[count];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> results[i] = task.apply(i))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running programs", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A program run failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return Arrays.asList(results);
+	}
+}
@@ -0,0 +1,85 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParallelExecutorTester {
+
+    /**
+     * @return SamplePrograms.countdown() from n
+     */
+    private Program countdown(int n) {
+        return new Program("countdown" + n, SamplePrograms.countdown(), SamplePrograms.countdownData(n));
+    }
+
+    @Test
+    // Test the results come back in the order of the programs
+    public void testRunAll() {
+        List<Program> programs = new ArrayList<>();
+        for (int n = 0; n < 20; n++) {
+            programs.add(countdown(n * 10));
+        }
+        List<RunResult> results = new ParallelExecutor(2).runAll(programs, 100_000, 0);
+        assertEquals(programs.size(), results.size());
+        for (int n = 0; n < 20; n++) {
+            RunResult result = results.get(n);
+            assertEquals("countdown" + n * 10, result.getName());
+            assertEquals(9 * n * 10 + 3, result.getSteps());
+            assertEquals(2, result.getProgramCounter());
+            assertTrue(result.isHalted());
+            assertSame(StopReason.HALTED, result.getStopReason());
+            assertNull(result.getError());
+        }
+    }
+
+    @Test
+    // Test a step limit and an error in one program do not affect the others
+    public void testLimitAndError() {
+        Code divide = new Code();
+        divide.setCode(0x1, 5, 0);  // 0: LOD 5
+        divide.setCode(0x6, 0, 0);  // 1: DIV 0
+        divide.setCode(0xF, 0, 0);  // 2: HALT
+        List<Program> programs = Arrays.asList(countdown(1000),
+                new Program("divide", divide, new int[Memory.DATA_SIZE]), countdown(3));
+        List<RunResult> results = new ParallelExecutor(2).runAll(programs, 500, 0);
+        assertSame(StopReason.STEP_LIMIT, results.get(0).getStopReason());
+        assertEquals(500, results.get(0).getSteps());
+        assertFalse(results.get(0).isHalted());
+        assertTrue(results.get(1).getError().startsWith("DivideByZeroException at line 1"));
+        assertEquals(5, results.get(1).getAccumulator());
+        assertTrue(results.get(2).isHalted());
+        assertEquals(30, results.get(2).getSteps());
+    }
+
+    @Test
+    // Test files are assembled by the workers and a missing file is reported in its place
+    public void testRunFiles() throws IOException {
+        File source = File.createTempFile("tester", ".pasm");
+        File missing = new File(source.getPath() + ".missing");
+        try {
+            Files.write(source.toPath(), "LOD 2\nMUL 3\nHALT\nDATA\n".getBytes());
+            List<RunResult> results = new ParallelExecutor(2).runFiles(
+                    Arrays.asList(source, missing, source), new ProgramCache(4), 100, 0);
+            assertEquals(6, results.get(0).getAccumulator());
+            assertTrue(results.get(0).isHalted());
+            assertEquals(missing.getName(), results.get(1).getName());
+            assertEquals("file not found", results.get(1).getError());
+            assertEquals(6, results.get(2).getAccumulator());
+            assertEquals(3, results.get(2).getSteps());
+        } finally {
+            source.delete();
+        }
+    }
+}
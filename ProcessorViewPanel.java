@@ -13,6 +13,7 @@ public class ProcessorViewPanel implements Observer{
 	private MachineView machineView;
 	private JTextField acc = new JTextField();
 	private JTextField pc = new JTextField();
+	private JTextField rate = new JTextField();
 	
 	public ProcessorViewPanel(MachineView machineView) {
 		this.machineView = machineView;
@@ -26,6 +27,9 @@ public class ProcessorViewPanel implements Observer{
 		returnPanel.add(acc);
 		returnPanel.add(new JLabel("Program Counter: ", JLabel.RIGHT));
 		returnPanel.add(pc);
+		returnPanel.add(new JLabel("Instructions/s: ", JLabel.RIGHT));
+		rate.setEditable(false);
+		returnPanel.add(rate);
 		return returnPanel;
 	}
 
@@ -34,6 +38,8 @@ public class ProcessorViewPanel implements Observer{
 		if(machineView != null) {
 			acc.setText("" + machineView.getAccumulator());
 			pc.setText("" + machineView.getProgramCounter());
+			long ips = machineView.getInstructionsPerSecond();
+			rate.setText(ips == 0 ? "" : String.format("%,d", ips));
 		}
 	}
 }
@@ -0,0 +1,86 @@
+package pippin;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Per-address execution counts, collected by MachineModel when a profiler
+ * is attached with setProfiler. For JUMP and JMPZ the profiler also counts
+ * how often the branch was taken, which picks out the loops of a program.
+ */
+public class Profiler {
+	private long[] counts = new long[Code.CODE_MAX];
+	private long[] taken = new long[Code.CODE_MAX];
+	private long[] notTaken = new long[Code.CODE_MAX];
+
+	/**
+	 * Records one completed instruction.
+	 * @param pc the address of the instruction
+	 * @param op its opcode
+	 * @param accumulatorZero whether the accumulator was 0 before it ran,
+	 * which decides a JMPZ
+	 */
+	void count(int pc, int op, boolean accumulatorZero) {
+		counts[pc]++;
+		if(op == 0xB || (op == 0xC && accumulatorZero)) {
+			taken[pc]++;
+		} else if(op == 0xC) {
+			notTaken[pc]++;
+		}
+	}
+
+	public long getCount(int pc) {
+		return counts[pc];
+	}
+
+	public long getTaken(int pc) {
+		return taken[pc];
+	}
+
+	public long getNotTaken(int pc) {
+		return notTaken[pc];
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		Arrays.fill(taken, 0);
+		Arrays.fill(notTaken, 0);
+	}
+
+	/**
+	 * Lists the executed addresses, hottest first, with the instruction
+	 * text from code.
+	 * @param code the program that was profiled
+	 * @param limit the largest number of addresses to list
+	 * @return the report
+	 */
+	public String report(Code code, int limit) {
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%5s %12s %7s %12s %12s  %s%n", "pc", "count", "%", "taken", "not taken", "instruction"));
+		Integer[] order = new Integer[Code.CODE_MAX];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer i) -> counts[i]).reversed());
+		for(int n = 0; n < limit && n < order.length && counts[order[n]] > 0; n++) {
+			int pc = order[n];
+			builder.append(String.format("%5d %12d %7.2f %12s %12s  %s%n", pc, counts[pc], 100.0 * counts[pc] / total,
+					isBranch(code, pc) ? Long.toString(taken[pc]) : "",
+					isBranch(code, pc) ? Long.toString(notTaken[pc]) : "",
+					code.getCodeText(pc)));
+		}
+		return builder.toString();
+	}
+
+	private static boolean isBranch(Code code, int pc) {
+		if(pc >= code.getProgramSize()) {
+			return false;
+		}
+		int op = code.getOp(pc);
+		return op == 0xB || op == 0xC;
+	}
+}
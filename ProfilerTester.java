@@ -0,0 +1,72 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProfilerTester {
+
+    /**
+     * Profiles SamplePrograms.countdown() from 10: the test at 0 and 1 runs
+     * 11 times, the loop body at 3 to 9 runs 10 times
+     */
+    private Profiler profile(Code code) {
+        MachineModel machine = new MachineModel();
+        Profiler profiler = new Profiler();
+        machine.setProfiler(profiler);
+        machine.setCode(code);
+        machine.setData(0, 10);
+        machine.run(1000);
+        assertEquals(StopReason.HALTED, machine.getStopReason());
+        return profiler;
+    }
+
+    @Test
+    // Test the counts per address and the branch counts
+    public void testCounts() {
+        Profiler profiler = profile(SamplePrograms.countdown());
+        assertEquals(11, profiler.getCount(0));
+        assertEquals(11, profiler.getCount(1));
+        assertEquals(1, profiler.getCount(2));
+        for (int pc = 3; pc <= 9; pc++) {
+            assertEquals(10, profiler.getCount(pc));
+        }
+        assertEquals(0, profiler.getCount(10));
+        // JMPZ 3 is taken while the counter is not 0
+        assertEquals(10, profiler.getTaken(1));
+        assertEquals(1, profiler.getNotTaken(1));
+        // JUMP 0 is always taken
+        assertEquals(10, profiler.getTaken(9));
+        assertEquals(0, profiler.getNotTaken(9));
+        assertEquals(0, profiler.getTaken(3));
+        profiler.reset();
+        assertEquals(0, profiler.getCount(0));
+        assertEquals(0, profiler.getTaken(1));
+    }
+
+    @Test
+    // Test the report lists the hottest addresses first
+    public void testReport() {
+        Code code = SamplePrograms.countdown();
+        Profiler profiler = profile(code);
+        String[] lines = profiler.report(code, 3).split("\\R");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].trim().startsWith("pc"));
+        assertEquals(String.format("%5d %12d %7.2f %12s %12s  %s", 0, 11, 100.0 * 11 / 93, "", "", "CMPZ [0"), lines[1]);
+        assertEquals(String.format("%5d %12d %7.2f %12s %12s  %s", 1, 11, 100.0 * 11 / 93, "10", "1", "JMPZ 3"), lines[2]);
+        assertTrue(lines[3].startsWith(String.format("%5d %12d", 3, 10)));
+        assertEquals(11, profiler.report(code, 100).split("\\R").length);
+    }
+
+    @Test
+    // Test Runner attaches a profiler only when asked and returns its report
+    public void testRunnerProfile() {
+        Code code = SamplePrograms.countdown();
+        Program program = new Program("countdown", code, SamplePrograms.countdownData(10));
+        RunResult result = Runner.run(program, 1000, 0, 3);
+        assertEquals(profile(code).report(code, 3), result.getProfile());
+        assertNull(Runner.run(program, 1000, 0).getProfile());
+    }
+}
@@ -0,0 +1,57 @@
+package pippin;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Map;
+
+/**
+ * A loaded executable: the code together with the initial contents of data
+ * memory. A Program is not changed by running it, so the same Program can be
+ * installed in any number of machines, including machines on other threads.
+ */
+public class Program {
+	private String name;
+	private Code code;
+	private int[] data;
+
+	public Program(String name, Code code, int[] data) {
+		if(data.length != Memory.DATA_SIZE) {
+			throw new IllegalArgumentException("Coding error: the data image must have " + Memory.DATA_SIZE + " values");
+		}
+		this.name = name;
+		this.code = code;
+		this.data = data;
+	}
+
+	/**
+	 * Reads an executable file into a Program.
+	 * @param file the executable file
+	 * @param errors the errors map, filled in as by Loader.load
+	 * @return the program or null if the file could not be loaded
+	 * @throws FileNotFoundException if the file cannot be opened
+	 */
+	public static Program load(File file, Map<Integer, String> errors) throws FileNotFoundException {
+		MachineModel scratch = new MachineModel();
+		Code code = new Code();
+		if(!Loader.load(scratch, code, file, errors)) {
+			return null;
+		}
+		return new Program(file.getName(), code, scratch.getData().clone());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Code getCode() {
+		return code;
+	}
+
+	public int getData(int index) {
+		return data[index];
+	}
+
+	int[] getData() {
+		return data;
+	}
+}
@@ -0,0 +1,208 @@
+package pippin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps recently assembled or loaded programs, keyed by the SHA-256 hash of
+ * their contents, so that running the same source or executable again does
+ * not parse it again. When the cache is full the least recently used program
+ * is dropped. Programs that fail to assemble or load are not kept.
+ * <p>
+ * A cache can be shared by several threads. A Program is never changed by
+ * running it, so the same cached Program is handed out to every caller. Its
+ * Code is made read only when it is cached, so that no caller can change
+ * the program for the others or make it differ from the contents it is
+ * keyed by.
+ * Parsing is done outside the lock, so threads that miss on the same
+ * contents at the same time may each parse it.
+ */
+public class ProgramCache {
+	/** the kinds of contents, hashed with them so that equal bytes of different kinds do not collide */
+	private static final byte SOURCE = 'S';
+	private static final byte TEXT = 'T';
+	private static final byte BINARY = 'B';
+
+	private final int maxEntries;
+	private final LinkedHashMap<ByteBuffer, Program> programs;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public ProgramCache(int maxEntries) {
+		if(maxEntries < 1) {
+			throw new IllegalArgumentException("The cache must hold at least one program");
+		}
+		this.maxEntries = maxEntries;
+		programs = new LinkedHashMap<ByteBuffer, Program>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Program> eldest) {
+				if(size() > ProgramCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Same as Assembler.assemble(name, source, errors), but source that was
+	 * assembled before is not assembled again.
+	 * @param name the name of the program
+	 * @param source the assembly language source
+	 * @param errors the errors map
+	 * @return the program or null if there were errors
+	 */
+	public Program assemble(String name, String source, Map<Integer, String> errors) {
+		ByteBuffer key = key(SOURCE, source.getBytes(StandardCharsets.UTF_8));
+		Program program = get(key, name);
+		if(program == null) {
+			program = Assembler.assemble(name, source, errors);
+			put(key, program);
+		}
+		return program;
+	}
+
+	/**
+	 * Reads a .pasm source file or an executable and returns its program, from
+	 * the cache if a file with the same contents was read before. The file
+	 * itself is always read, to compute the hash.
+	 * @param file the source or executable file
+	 * @param errors the errors map, filled in as by Assembler.assemble or Loader.load
+	 * @return the program or null if it could not be assembled or loaded
+	 * @throws FileNotFoundException if the file cannot be opened
+	 */
+	public Program load(File file, Map<Integer, String> errors) throws FileNotFoundException {
+		if (errors == null){
+			throw new IllegalArgumentException("Coding error: the error map is null");
+		}
+		byte[] contents;
+		try {
+			contents = Files.readAllBytes(file.toPath());
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(file.getPath());
+		} catch (IOException e) {
+			errors.put(0, "Error: Unable to read the file: " + e.getMessage());
+			return null;
+		}
+
+		String name = file.getName();
+		if(name.endsWith(".pasm")) {
+			// decoded as FileReader decodes it
+			return assemble(name, new String(contents, Charset.defaultCharset()), errors);
+		}
+		boolean binary = BinaryExecutable.isBinary(file);
+		ByteBuffer key = key(binary ? BINARY : TEXT, contents);
+		Program program = get(key, name);
+		if(program == null) {
+			MachineModel scratch = new MachineModel();
+			Code code = new Code();
+			boolean loaded;
+			if(binary) {
+				loaded = BinaryExecutable.load(scratch, code, ByteBuffer.wrap(contents), errors);
+			} else {
+				try {
+					loaded = Loader.load(scratch, code, Channels.newChannel(new ByteArrayInputStream(contents)), errors);
+				} catch (IOException e) {
+					errors.put(0, "Error: Unable to read the executable: " + e.getMessage());
+					loaded = false;
+				}
+			}
+			if(loaded) {
+				program = new Program(name, code, scratch.getData().clone());
+				put(key, program);
+			}
+		}
+		return program;
+	}
+
+	private static ByteBuffer key(byte kind, byte[] contents) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		digest.update(kind);
+		return ByteBuffer.wrap(digest.digest(contents));
+	}
+
+	/**
+	 * @return the cached program under the given name, or null on a miss
+	 */
+	private synchronized Program get(ByteBuffer key, String name) {
+		Program program = programs.get(key);
+		if(program == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		if(!program.getName().equals(name)) {
+			program = new Program(name, program.getCode(), program.getData());
+		}
+		return program;
+	}
+
+	private synchronized void put(ByteBuffer key, Program program) {
+		if(program != null) {
+			program.getCode().makeReadOnly();
+			programs.put(key, program);
+		}
+	}
+
+	public synchronized int size() {
+		return programs.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the fraction of lookups that were hits, 0 if there were none
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+
+	public synchronized void clear() {
+		programs.clear();
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d of %d programs cached, %d hits, %d misses, %d evictions",
+				programs.size(), maxEntries, hits, misses, evictions);
+	}
+}
@@ -0,0 +1,81 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class ProgramCacheTester {
+
+    ProgramCache cache = new ProgramCache(2);
+    Map<Integer, String> errors = new TreeMap<>();
+
+    @Test
+    // Test the same source is only assembled once
+    public void testHit() {
+        Program first = cache.assemble("a", "LOD 1\nHALT\nDATA\n0 5\n", errors);
+        Program second = cache.assemble("a", "LOD 1\nHALT\nDATA\n0 5\n", errors);
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    // Test a hit under a different name shares the code and data
+    public void testRename() {
+        Program first = cache.assemble("a", "LOD 1\nHALT\nDATA\n0 5\n", errors);
+        Program second = cache.assemble("b", "LOD 1\nHALT\nDATA\n0 5\n", errors);
+        assertEquals("b", second.getName());
+        assertSame(first.getCode(), second.getCode());
+        assertEquals(5, second.getData(0));
+    }
+
+    @Test
+    // Test the cached code cannot be changed by one of its users
+    public void testReadOnly() {
+        Program first = cache.assemble("a", "LOD 1\nHALT\nDATA\n", errors);
+        assertTrue(first.getCode().isReadOnly());
+        try {
+            first.getCode().setCode(0x0, 0, 0);
+        } catch (UnsupportedOperationException e) {
+            Program second = cache.assemble("a", "LOD 1\nHALT\nDATA\n", errors);
+            assertEquals(2, second.getCode().getProgramSize());
+            return;
+        }
+        throw new AssertionError("cached code was changed");
+    }
+
+    @Test
+    // Test the least recently used program is evicted
+    public void testEviction() {
+        cache.assemble("a", "LOD 1\nHALT\nDATA\n", errors);
+        cache.assemble("b", "LOD 2\nHALT\nDATA\n", errors);
+        cache.assemble("a", "LOD 1\nHALT\nDATA\n", errors);
+        cache.assemble("c", "LOD 3\nHALT\nDATA\n", errors);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.assemble("a", "LOD 1\nHALT\nDATA\n", errors);
+        assertEquals(2, cache.getHits());
+        cache.assemble("b", "LOD 2\nHALT\nDATA\n", errors);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    // Test programs with errors are not cached
+    public void testErrorsNotCached() {
+        assertNull(cache.assemble("a", " HALT\nDATA\n", errors));
+        assertEquals("Error on line 1: starts with white space", errors.get(1));
+        errors.clear();
+        assertNull(cache.assemble("a", " HALT\nDATA\n", errors));
+        assertEquals(1, errors.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+}
@@ -0,0 +1,106 @@
+package pippin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RunLimitsTester {
+
+    /**
+     * LOD 0 / ADD 1 / JUMP 1, which never halts
+     */
+    private MachineModel forever() {
+        Code code = new Code();
+        code.setCode(0x1, 0, 0);  // 0: LOD 0
+        code.setCode(0x3, 1, 0);  // 1: ADD 1
+        code.setCode(0xB, 1, 0);  // 2: JUMP 1
+        MachineModel machine = new MachineModel();
+        machine.setCode(code);
+        return machine;
+    }
+
+    @Test
+    // Test the step limit is met exactly, whether or not it is a multiple of CHECK_INTERVAL
+    public void testStepLimit() {
+        long[] limits = {1, 3 * MachineModel.CHECK_INTERVAL, 3 * MachineModel.CHECK_INTERVAL + 7, 10_001};
+        for (long limit : limits) {
+            MachineModel machine = forever();
+            assertEquals(limit, machine.run(limit));
+            assertSame(StopReason.STEP_LIMIT, machine.getStopReason());
+            assertEquals(limit, machine.getStepCount());
+            // LOD then alternating ADD and JUMP
+            assertEquals(limit / 2, machine.getAccumulator());
+            assertEquals(limit % 2 == 0 ? 2 : 1, machine.getProgramCounter());
+        }
+    }
+
+    @Test
+    // Test a run of a program that halts
+    public void testHalted() {
+        MachineModel machine = new MachineModel();
+        machine.setCode(SamplePrograms.countdown());
+        machine.setData(0, 1000);
+        assertEquals(9 * 1000 + 3, machine.run(Long.MAX_VALUE, 10_000));
+        assertSame(StopReason.HALTED, machine.getStopReason());
+        assertEquals(500500, machine.getData(1));
+    }
+
+    @Test
+    // Test the timeout stops a program that never halts
+    public void testTimeout() {
+        MachineModel machine = forever();
+        long start = System.nanoTime();
+        long steps = machine.run(Long.MAX_VALUE, 50);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertSame(StopReason.TIMEOUT, machine.getStopReason());
+        assertTrue(elapsed >= 50);
+        assertTrue(steps > 0);
+        assertEquals(steps, machine.getStepCount());
+    }
+
+    @Test
+    // Test cancel from another thread stops the run
+    public void testCancelled() throws InterruptedException {
+        MachineModel machine = forever();
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            machine.cancel();
+        });
+        canceller.start();
+        machine.run(Long.MAX_VALUE, 10_000);
+        canceller.join();
+        assertSame(StopReason.CANCELLED, machine.getStopReason());
+
+        // the request is used up, so the next run goes on to its limit
+        machine.run(100);
+        assertSame(StopReason.STEP_LIMIT, machine.getStopReason());
+    }
+
+    @Test
+    // Test a cancel made when no run is going on, such as just after a
+    // program halts, does not stop the next run
+    public void testStaleCancel() {
+        MachineModel machine = forever();
+        machine.cancel();
+        assertEquals(3 * MachineModel.CHECK_INTERVAL, machine.run(3 * MachineModel.CHECK_INTERVAL));
+        assertSame(StopReason.STEP_LIMIT, machine.getStopReason());
+
+        machine = new MachineModel();
+        machine.setCode(SamplePrograms.countdown());
+        machine.setData(0, 2);
+        machine.run(100);
+        assertSame(StopReason.HALTED, machine.getStopReason());
+        machine.cancel();
+        machine.setProgramCounter(0);
+        machine.setData(0, 1000);
+        machine.run(Long.MAX_VALUE);
+        assertSame(StopReason.HALTED, machine.getStopReason());
+        assertEquals(500500 + 3, machine.getData(1));
+    }
+}
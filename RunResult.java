@@ -0,0 +1,92 @@
+package pippin;
+
+/**
+ * The outcome of running one program headlessly: the final registers,
+ * how many instructions were executed, how long it took and why the
+ * program stopped.
+ */
+public class RunResult {
+	private String name;
+	private int accumulator;
+	private int programCounter;
+	private long steps;
+	private long nanos;
+	private StopReason stopReason;
+	private String error;
+	private String profile;
+
+	public RunResult(String name, int accumulator, int programCounter, long steps, long nanos,
+			StopReason stopReason, String error) {
+		this(name, accumulator, programCounter, steps, nanos, stopReason, error, null);
+	}
+
+	/**
+	 * @param profile the hot-spot report of a profiled run, or null
+	 */
+	public RunResult(String name, int accumulator, int programCounter, long steps, long nanos,
+			StopReason stopReason, String error, String profile) {
+		this.name = name;
+		this.accumulator = accumulator;
+		this.programCounter = programCounter;
+		this.steps = steps;
+		this.nanos = nanos;
+		this.stopReason = stopReason;
+		this.error = error;
+		this.profile = profile;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getAccumulator() {
+		return accumulator;
+	}
+
+	public int getProgramCounter() {
+		return programCounter;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public boolean isHalted() {
+		return stopReason == StopReason.HALTED;
+	}
+
+	/**
+	 * @return why the run stopped, or null if it failed with an error
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return the Profiler report of the run, or null if it was not profiled
+	 */
+	public String getProfile() {
+		return profile;
+	}
+
+	public String getStatus() {
+		if(error != null) {
+			return "ERROR: " + error;
+		}
+		return stopReason.toString();
+	}
+
+	@Override
+	public String toString() {
+		return name + "\t" + accumulator + "\t" + programCounter + "\t" + steps + "\t"
+				+ String.format("%.3f", nanos / 1e6) + "\t" + getStatus();
+	}
+}
@@ -1,44 +1,222 @@
 package pippin;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Headless batch runner. Runs every executable named on the command line
+ * (directories are searched for .pexe and .pbin files) to HALT, or until the step
+ * limit or the per-program timeout, and prints one report line per program. The JVM is never shut
+ * down by a program, so any number of programs can be run in one batch.
+ * Source files (.pasm) named on the command line are assembled in memory
+ * and run without writing an executable.
+ * <p>
+ * With -threads the programs are spread over that many worker threads
+ * (0 means one per core); the report is still in command line order.
+ * <p>
+ * With -cache the last N distinct programs are kept in a ProgramCache, so
+ * files with the same contents are only assembled or loaded once.
+ * <p>
+ * With -profile each program is run with a Profiler attached, which makes
+ * it slower, and the N hottest addresses of each are listed after the
+ * report lines.
+ * <p>
+ * Usage: java pippin.Runner [-steps N] [-timeout MS] [-threads N] [-cache N] [-profile N] file-or-directory...
+ */
 public class Runner {
-public static void main(String[] args) throws FileNotFoundException {
-MachineModel model = new MachineModel();
-Code program1 = new Code();
-Loader.load(model, program1, new File("test1.pexe"));
-System.out.println("program1");
-int pc = 0;
-while(pc < 3) {
-System.out.println(program1.getCodeText(pc));
-int op = program1.getOp(pc);
-int arg = program1.getArg(pc);
-int lev = program1.getIndirectionLevel(pc);
-Instruction instr = model.INSTRUCTION_MAP.get(op);
-instr.execute(arg, lev);
-pc = model.getProgramCounter();
-System.out.println("memory[0] = " + model.getData(0));
-System.out.println("memory[1] = " + model.getData(1));
-System.out.println("memory[2] = " + model.getData(2));
+	public static final long DEFAULT_MAX_STEPS = 10_000_000L;
+	private static final String USAGE = "Usage: java pippin.Runner [-steps N] [-timeout MS] [-threads N] [-cache N] [-profile N] file-or-directory...";
+
+	public static void main(String[] args) {
+		long maxSteps = DEFAULT_MAX_STEPS;
+		long timeoutMillis = 0;
+		int threads = 1;
+		ProgramCache cache = null;
+		int profileLines = 0;
+		List<File> files = new ArrayList<>();
+		try {
+			for(int i = 0; i < args.length; i++) {
+				if(args[i].equals("-steps")) {
+					maxSteps = Long.parseLong(value(args, ++i));
+				} else if(args[i].equals("-timeout")) {
+					timeoutMillis = Long.parseLong(value(args, ++i));
+				} else if(args[i].equals("-threads")) {
+					threads = Integer.parseInt(value(args, ++i));
+					if(threads == 0) {
+						threads = Runtime.getRuntime().availableProcessors();
+					} else if(threads < 0) {
+						throw new IllegalArgumentException("The number of threads cannot be negative");
+					}
+				} else if(args[i].equals("-cache")) {
+					cache = new ProgramCache(Integer.parseInt(value(args, ++i)));
+				} else if(args[i].equals("-profile")) {
+					profileLines = Integer.parseInt(value(args, ++i));
+					if(profileLines < 1) {
+						throw new IllegalArgumentException("The profile must list at least one address");
+					}
+				} else {
+					addFiles(new File(args[i]), files);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// also a NumberFormatException from a value that is not a number
+			System.err.println("Error: " + e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		if(files.isEmpty()) {
+			System.err.println(USAGE);
+			return;
+		}
+		System.out.println("program\taccumulator\tpc\tsteps\tms\tstatus");
+		List<RunResult> results = new ArrayList<>();
+		if(threads > 1) {
+			results = new ParallelExecutor(threads).runFiles(files, cache, maxSteps, timeoutMillis, profileLines);
+			for(RunResult result : results) {
+				System.out.println(result);
+			}
+		} else {
+			for(File file : files) {
+				RunResult result = run(file, cache, maxSteps, timeoutMillis, profileLines);
+				System.out.println(result);
+				results.add(result);
+			}
+		}
+		for(RunResult result : results) {
+			if(result.getProfile() != null) {
+				System.out.println();
+				System.out.println("profile of " + result.getName());
+				System.out.print(result.getProfile());
+			}
+		}
+		if(cache != null) {
+			System.err.println(cache);
+		}
+	}
+
+	/**
+	 * @return args[i], the value of the option at args[i - 1]
+	 * @throws IllegalArgumentException if the option is the last argument
+	 */
+	private static String value(String[] args, int i) {
+		if(i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+		}
+		return args[i];
+	}
+
+	static void addFiles(File file, List<File> files) {
+		if(file.isDirectory()) {
+			File[] children = file.listFiles((dir, name) -> name.endsWith(".pexe")
+					|| name.endsWith("." + BinaryExecutable.EXTENSION));
+			if(children != null) {
+				Arrays.sort(children);
+				files.addAll(Arrays.asList(children));
+			}
+		} else {
+			files.add(file);
+		}
+	}
+
+	/**
+	 * Loads the executable, or assembles it if it is a .pasm source file, and
+	 * runs it in a new machine.
+	 * @param file the executable or source file
+	 * @param maxSteps the largest number of instructions to execute
+	 * @param timeoutMillis wall-clock limit in milliseconds, 0 for none
+	 * @return the final state of the machine
+	 */
+	public static RunResult run(File file, long maxSteps, long timeoutMillis) {
+		return run(file, null, maxSteps, timeoutMillis);
+	}
+
+	/**
+	 * Same as run(file, maxSteps, timeoutMillis) but takes the program from
+	 * the cache if it holds a file with the same contents.
+	 * @param cache the program cache, or null to always read the file
+	 */
+	public static RunResult run(File file, ProgramCache cache, long maxSteps, long timeoutMillis) {
+		return run(file, cache, maxSteps, timeoutMillis, 0);
+	}
+
+	/**
+	 * Same as run(file, cache, maxSteps, timeoutMillis) but profiles the run
+	 * if profileLines is more than 0.
+	 * @param profileLines the number of addresses the profile lists, 0 for no profile
+	 */
+	public static RunResult run(File file, ProgramCache cache, long maxSteps, long timeoutMillis, int profileLines) {
+		Map<Integer, String> errors = new TreeMap<>();
+		Program program;
+		if(cache != null) {
+			try {
+				program = cache.load(file, errors);
+			} catch (FileNotFoundException e) {
+				return new RunResult(file.getName(), 0, 0, 0, 0, null, "file not found");
+			}
+		} else if(file.getName().endsWith(".pasm")) {
+			try (FileReader source = new FileReader(file)) {
+				program = Assembler.assemble(file.getName(), source, errors);
+			} catch (FileNotFoundException e) {
+				return new RunResult(file.getName(), 0, 0, 0, 0, null, "file not found");
+			} catch (IOException e) {
+				errors.put(0, "Error: Unable to read the source: " + e.getMessage());
+				program = null;
+			}
+		} else {
+			try {
+				program = Program.load(file, errors);
+			} catch (FileNotFoundException e) {
+				return new RunResult(file.getName(), 0, 0, 0, 0, null, "file not found");
+			}
+		}
+		if(program == null) {
+			return new RunResult(file.getName(), 0, 0, 0, 0, null,
+					"load failed: " + errors.values().iterator().next());
+		}
+		return run(program, maxSteps, timeoutMillis, profileLines);
+	}
+
+	/**
+	 * Runs the program in a new machine.
+	 * @param program the program to run
+	 * @param maxSteps the largest number of instructions to execute
+	 * @param timeoutMillis wall-clock limit in milliseconds, 0 for none
+	 * @return the final state of the machine
+	 */
+	public static RunResult run(Program program, long maxSteps, long timeoutMillis) {
+		return run(program, maxSteps, timeoutMillis, 0);
+	}
+
+	/**
+	 * Same as run(program, maxSteps, timeoutMillis) but with a Profiler
+	 * attached if profileLines is more than 0. Its report, of the
+	 * profileLines hottest addresses, is returned in the result.
+	 * @param profileLines the number of addresses the profile lists, 0 for no profile
+	 */
+	public static RunResult run(Program program, long maxSteps, long timeoutMillis, int profileLines) {
+		MachineModel model = new MachineModel();
+		model.setProgram(program);
+		Profiler profiler = null;
+		if(profileLines > 0) {
+			profiler = new Profiler();
+			model.setProfiler(profiler);
+		}
+		String error = null;
+		long start = System.nanoTime();
+		try {
+			model.run(maxSteps, timeoutMillis);
+		} catch (RuntimeException e) {
+			error = e.getClass().getSimpleName() + " at line " + model.getProgramCounter() + ": " + e.getMessage();
+		}
+		long nanos = System.nanoTime() - start;
+		String profile = profiler == null ? null : profiler.report(program.getCode(), profileLines);
+		return new RunResult(program.getName(), model.getAccumulator(), model.getProgramCounter(),
+				model.getStepCount(), nanos, model.getStopReason(), error, profile);
+	}
 }
-System.out.println("======================");
-System.out.println("program2");
-pc = 0;
-model.clearMemory();
-model.setAccumulator(0);
-model.setProgramCounter(0);
-Code program2 = new Code();
-Loader.load(model, program2, new File("test2.pexe"));
-while (true){
-pc = model.getProgramCounter();
-System.out.println(program2.getCodeText(pc));
-int op = program2.getOp(pc);
-int arg = program2.getArg(pc);
-int lev = program2.getIndirectionLevel(pc);
-Instruction instr = model.INSTRUCTION_MAP.get(op);
-instr.execute(arg, lev);
-System.out.println("memory[0] = " + model.getData(0));
-System.out.println("memory[1] = " + model.getData(1));
-System.out.println("acc = " + model.getAccumulator());
-}
-}
-}
\ No newline at end of file
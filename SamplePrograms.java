@@ -0,0 +1,39 @@
+package pippin;
+
+/**
+ * Small programs shared by the testers and by the benchmarks in the
+ * benchmarks directory, which only see the main sources.
+ */
+final class SamplePrograms {
+	private SamplePrograms() {
+	}
+
+	/**
+	 * data[0] counts down to 0 while data[1] accumulates the running total,
+	 * using only fusable sequences. From a counter n it halts after 9n + 3
+	 * instructions with n(n+1)/2 in data[1].
+	 */
+	static Code countdown() {
+		Code code = new Code();
+		code.setCode(0x9, 0, 1);  // 0: CMPZ [0]
+		code.setCode(0xC, 3, 0);  // 1: JMPZ 3
+		code.setCode(0xF, 0, 0);  // 2: HALT
+		code.setCode(0x1, 1, 1);  // 3: LOD [1]
+		code.setCode(0x3, 0, 1);  // 4: ADD [0]
+		code.setCode(0x2, 1, 1);  // 5: STO [1]
+		code.setCode(0x1, 0, 1);  // 6: LOD [0]
+		code.setCode(0x4, 1, 0);  // 7: SUB 1
+		code.setCode(0x2, 0, 1);  // 8: STO [0]
+		code.setCode(0xB, 0, 0);  // 9: JUMP 0
+		return code;
+	}
+
+	/**
+	 * @return data memory for countdown() from counter
+	 */
+	static int[] countdownData(int counter) {
+		int[] data = new int[Memory.DATA_SIZE];
+		data[0] = counter;
+		return data;
+	}
+}
@@ -0,0 +1,48 @@
+package pippin;
+
+/**
+ * The state of a machine at one moment: the registers, the contents of
+ * data memory and the code. Taken with MachineModel.snapshot and put back
+ * with MachineModel.restore. Memory pages that did not change between two
+ * snapshots of the same machine are shared by them, and a snapshot is
+ * never changed, so it can be restored any number of times.
+ */
+public class Snapshot {
+	private int accumulator;
+	private int programCounter;
+	private long stepCount;
+	private Code code;
+	private int[][] pages;
+
+	Snapshot(int accumulator, int programCounter, long stepCount, Code code, int[][] pages) {
+		this.accumulator = accumulator;
+		this.programCounter = programCounter;
+		this.stepCount = stepCount;
+		this.code = code;
+		this.pages = pages;
+	}
+
+	public int getAccumulator() {
+		return accumulator;
+	}
+
+	public int getProgramCounter() {
+		return programCounter;
+	}
+
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	public Code getCode() {
+		return code;
+	}
+
+	public int getData(int index) {
+		return pages[index / Memory.PAGE_SIZE][index % Memory.PAGE_SIZE];
+	}
+
+	int[][] getPages() {
+		return pages;
+	}
+}
@@ -0,0 +1,94 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotTester {
+
+    MachineModel machine = new MachineModel();
+    Code code = new Code();
+    int[] dataCopy = new int[Memory.DATA_SIZE];
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < Memory.DATA_SIZE; i++) {
+            dataCopy[i] = 3*i - 100;
+            machine.setData(i, 3*i - 100);
+        }
+        machine.setCode(code);
+        machine.setAccumulator(7);
+        machine.setProgramCounter(2);
+    }
+
+    @Test
+    // Test restore puts back the registers, memory and code
+    public void testRestore() {
+        Snapshot snapshot = machine.snapshot();
+        machine.setData(0, 1);
+        machine.setData(300, 2);
+        machine.setData(Memory.DATA_SIZE - 1, 3);
+        machine.setAccumulator(-1);
+        machine.setProgramCounter(9);
+        machine.setCode(new Code());
+        machine.restore(snapshot);
+        assertArrayEquals(dataCopy, machine.getData());
+        assertEquals(7, machine.getAccumulator());
+        assertEquals(2, machine.getProgramCounter());
+        assertSame(code, machine.getCode());
+        assertEquals(-100, snapshot.getData(0));
+    }
+
+    @Test
+    // Test a snapshot is not changed by later writes and can be restored again
+    public void testRestoreTwice() {
+        Snapshot snapshot = machine.snapshot();
+        for (int round = 0; round < 3; round++) {
+            machine.setData(8*round, round + 1000);
+            machine.restore(snapshot);
+            assertArrayEquals(dataCopy, machine.getData());
+        }
+    }
+
+    @Test
+    // Test restoring an older snapshot puts back the pages written since
+    public void testRestoreOlder() {
+        Snapshot first = machine.snapshot();
+        machine.setData(20, 5);
+        Snapshot second = machine.snapshot();
+        machine.setData(40, 6);
+        machine.restore(first);
+        assertArrayEquals(dataCopy, machine.getData());
+        machine.restore(second);
+        dataCopy[20] = 5;
+        assertArrayEquals(dataCopy, machine.getData());
+    }
+
+    @Test
+    // Test the pages changed by ROT are restored
+    public void testRestoreAfterRotate() {
+        machine.setData(0, 5);
+        machine.setData(1, 60);
+        machine.setData(2, -7);
+        Snapshot snapshot = machine.snapshot();
+        int[] expected = machine.getData().clone();
+        machine.get(0x14).execute(0, 1);
+        machine.restore(snapshot);
+        assertArrayEquals(expected, machine.getData());
+    }
+
+    @Test
+    // Test a snapshot of one machine can be restored in another
+    public void testRestoreOtherMachine() {
+        Snapshot snapshot = machine.snapshot();
+        MachineModel other = new MachineModel();
+        other.restore(snapshot);
+        assertArrayEquals(dataCopy, other.getData());
+        other.setData(100, 0);
+        other.restore(snapshot);
+        assertArrayEquals(dataCopy, other.getData());
+    }
+}
@@ -0,0 +1,49 @@
+package pippin;
+
+/**
+ * The auto-step speeds offered by the GUI. Each timer tick executes
+ * stepsPerTick instructions; the slow speeds execute one instruction per
+ * tick so that every step is displayed, the fast ones a batch per tick.
+ */
+public enum Speed {
+	ONE_PER_SECOND("1 step/s", 1000, 1),
+	TWO_PER_SECOND("2 steps/s", 500, 1),
+	TEN_PER_SECOND("10 steps/s", 100, 1),
+	FIFTY_PER_SECOND("50 steps/s", 20, 1),
+	THOUSAND_PER_SECOND("1,000 steps/s", 20, 20),
+	FIFTY_THOUSAND_PER_SECOND("50,000 steps/s", 20, 1000),
+	UNTHROTTLED("Unthrottled", 20, Long.MAX_VALUE);
+
+	public static final Speed DEFAULT = TWO_PER_SECOND;
+
+	private String label;
+	private int tickMillis;
+	private long stepsPerTick;
+
+	private Speed(String label, int tickMillis, long stepsPerTick) {
+		this.label = label;
+		this.tickMillis = tickMillis;
+		this.stepsPerTick = stepsPerTick;
+	}
+
+	public int getTickMillis() {
+		return tickMillis;
+	}
+
+	public long getStepsPerTick() {
+		return stepsPerTick;
+	}
+
+	/**
+	 * @return the longest time a batch may run in one tick, so that the
+	 * display still gets a quarter of each tick
+	 */
+	public int getBatchMillis() {
+		return Math.max(1, tickMillis * 3 / 4);
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -11,6 +11,18 @@ public enum States {
 			states[STEP] = false;
 		}		
 	},
+	/** the program runs at full speed on a worker thread, Run/Pause pauses it */
+	FREE_RUNNING {
+		public void enter() {
+			states[ASSEMBLE] = false;
+			states[CLEAR] = false;
+			states[LOAD] = false;
+			states[RELOAD] = false;
+			states[RUN] = true;
+			states[RUNNING] = true;
+			states[STEP] = false;
+		}
+	},
 	NOTHING_LOADED {
 		public void enter() {
 			states[ASSEMBLE] = true;
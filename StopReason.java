@@ -0,0 +1,11 @@
+package pippin;
+
+/**
+ * Why the last call to MachineModel.run returned normally.
+ */
+public enum StopReason {
+	HALTED,
+	STEP_LIMIT,
+	TIMEOUT,
+	CANCELLED
+}
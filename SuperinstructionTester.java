@@ -0,0 +1,43 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SuperinstructionTester {
+
+    @Test
+    // Test the sequences are found where all the addresses are in memory
+    public void testAnalyze() {
+        Code code = SamplePrograms.countdown();
+        assertArrayEquals(new byte[] {Superinstructions.CMPZ_JMPZ, 0, 0,
+                Superinstructions.LOD_ADD_STO, 0, 0, Superinstructions.LOD_SUB_STO, 0, 0, 0},
+                code.getSuperinstructions());
+        code.setCode(0x1, Memory.DATA_SIZE, 1);
+        code.setCode(0x3, 0, 0);
+        code.setCode(0x2, 0, 1);
+        assertEquals(Superinstructions.NONE, code.getSuperinstructions()[10]);
+    }
+
+    @Test
+    // Test a run stopped after any number of steps, including in the middle
+    // of a superinstruction, matches single stepping
+    public void testEveryStepBoundary() {
+        MachineModel stepped = CompiledCodeTester.assertEveryStepBoundary(SamplePrograms.countdown(), SamplePrograms.countdownData(3), false);
+        assertEquals(9 * 3 + 3, stepped.getStepCount());
+        assertEquals(6, stepped.getData(1));
+    }
+
+    @Test
+    // Test the result at HALT
+    public void testHalt() {
+        MachineModel run = CompiledCodeTester.machine(SamplePrograms.countdown(), SamplePrograms.countdownData(1000), 0, false);
+        run.run(Long.MAX_VALUE);
+        assertEquals(StopReason.HALTED, run.getStopReason());
+        assertEquals(500500, run.getData(1));
+        assertEquals(1, run.getAccumulator());
+        assertEquals(2, run.getProgramCounter());
+        assertEquals(9 * 1000 + 3, run.getStepCount());
+    }
+}
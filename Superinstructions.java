@@ -0,0 +1,87 @@
+package pippin;
+
+/**
+ * Finds the short instruction sequences that MachineModel.run executes as
+ * one superinstruction:
+ * <ul>
+ * <li>LOD x / ADD y / STO [z]
+ * <li>LOD x / SUB y / STO [z]
+ * <li>CMPZ [x] / JMPZ n
+ * </ul>
+ * where each operand is immediate or direct. A sequence is only fused when
+ * every memory address in it is inside data memory, so a superinstruction
+ * can never throw part way through and leaves exactly the state the
+ * separate instructions would. The sequences are found by position only:
+ * a jump into the middle of one executes the remaining instructions one at
+ * a time.
+ */
+final class Superinstructions {
+	static final byte NONE = 0;
+	static final byte LOD_ADD_STO = 1;
+	static final byte LOD_SUB_STO = 2;
+	static final byte CMPZ_JMPZ = 3;
+
+	private static final int LOD = 0x1;
+	private static final int STO = 0x2;
+	private static final int ADD = 0x3;
+	private static final int SUB = 0x4;
+	private static final int CMPZ = 0x9;
+	private static final int JMPZ = 0xC;
+
+	private Superinstructions() {
+	}
+
+	/**
+	 * @return the number of instructions a superinstruction replaces
+	 */
+	static int length(byte kind) {
+		return kind == CMPZ_JMPZ ? 2 : 3;
+	}
+
+	/**
+	 * Marks the start of every fusable sequence in the code
+	 * @param code the program
+	 * @param size the number of instructions in code
+	 * @return the kind of superinstruction starting at each index, NONE for
+	 * an ordinary instruction
+	 */
+	static byte[] analyze(long[] code, int size) {
+		byte[] kinds = new byte[size];
+		for (int i = 0; i < size; i++) {
+			kinds[i] = kindAt(code, size, i);
+		}
+		return kinds;
+	}
+
+	private static byte kindAt(long[] code, int size, int i) {
+		int op = Code.op(code[i]);
+		if (op == LOD && i + 2 < size && readable(code[i]) && readable(code[i+1])
+				&& Code.op(code[i+2]) == STO && Code.level(code[i+2]) == 1 && inMemory(Code.arg(code[i+2]))) {
+			int next = Code.op(code[i+1]);
+			if (next == ADD) {
+				return LOD_ADD_STO;
+			}
+			if (next == SUB) {
+				return LOD_SUB_STO;
+			}
+		}
+		if (op == CMPZ && i + 1 < size && Code.level(code[i]) == 1 && inMemory(Code.arg(code[i]))
+				&& Code.op(code[i+1]) == JMPZ && readable(code[i+1])) {
+			return CMPZ_JMPZ;
+		}
+		return NONE;
+	}
+
+	/**
+	 * @return true if the operand of the instruction is immediate, or direct
+	 * and inside data memory
+	 */
+	private static boolean readable(long word) {
+		int level = Code.level(word);
+		return level == 0 || (level == 1 && inMemory(Code.arg(word)));
+	}
+
+	private static boolean inMemory(int address) {
+		return address >= 0 && address < Memory.DATA_SIZE;
+	}
+}
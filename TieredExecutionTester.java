@@ -0,0 +1,81 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static pippin.CompiledCodeTester.machine;
+import static pippin.SamplePrograms.countdownData;
+
+import org.junit.Test;
+
+public class TieredExecutionTester {
+
+    @Test
+    // Test a run is promoted part way through and ends as single stepping does
+    public void testPromotion() {
+        Code code = SamplePrograms.countdown();
+        MachineModel run = machine(code, countdownData(100), 10, false);
+        assertSame(ExecutionTier.INTERPRETED, run.getTier());
+        run.run(50);
+        assertSame(ExecutionTier.INTERPRETED, run.getTier());
+        run.run(Long.MAX_VALUE);
+        assertSame(ExecutionTier.COMPILED, run.getTier());
+        assertSame(StopReason.HALTED, run.getStopReason());
+
+        MachineModel stepped = machine(code, countdownData(100), 10, false);
+        stepped.setRunning(true);
+        while (stepped.isRunning()) {
+            stepped.step();
+        }
+        assertEquals(stepped.getStepCount(), run.getStepCount());
+        assertEquals(stepped.getAccumulator(), run.getAccumulator());
+        assertEquals(stepped.getProgramCounter(), run.getProgramCounter());
+        assertArrayEquals(stepped.getData(), run.getData());
+    }
+
+    @Test
+    // Test stepping a promoted program and running it again, translated
+    public void testStepAfterPromotion() {
+        Code code = SamplePrograms.countdown();
+        MachineModel machine = machine(code, countdownData(100), 10, true);
+        machine.run(200);
+        assertSame(ExecutionTier.TRANSLATED, machine.getTier());
+        int counter = machine.getData(0);
+        int pc = machine.getProgramCounter();
+        for (int i = 0; i < 9; i++) {
+            machine.step();
+        }
+        assertEquals(counter - 1, machine.getData(0));
+        assertEquals(pc, machine.getProgramCounter());
+        machine.run(Long.MAX_VALUE);
+        assertEquals(5050, machine.getData(1));
+        assertEquals(9 * 100 + 3, machine.getStepCount());
+    }
+
+    @Test
+    // Test a machine with no code is interpreted and cannot run
+    public void testNoCode() {
+        MachineModel machine = new MachineModel();
+        assertSame(ExecutionTier.INTERPRETED, machine.getTier());
+        try {
+            machine.run(10);
+        } catch (IllegalStateException e) {
+            assertSame(ExecutionTier.INTERPRETED, machine.getTier());
+            return;
+        }
+        throw new AssertionError("run with no code did not throw");
+    }
+
+    @Test
+    // Test changing the code sends it back to the interpreter
+    public void testCodeChange() {
+        Code code = SamplePrograms.countdown();
+        MachineModel machine = machine(code, countdownData(100), 10, false);
+        machine.run(200);
+        assertSame(ExecutionTier.COMPILED, machine.getTier());
+        code.setCode(0xF, 0, 0);
+        assertSame(ExecutionTier.INTERPRETED, machine.getTier());
+        machine.run(Long.MAX_VALUE);
+        assertEquals(5050, machine.getData(1));
+    }
+}
@@ -0,0 +1,35 @@
+package pippin;
+
+/**
+ * A program translated to JVM bytecode by BytecodeTranslator. The
+ * generated class implements this interface.
+ */
+interface TranslatedCode {
+	/** registers[] index of the accumulator */
+	int ACCUMULATOR = 0;
+	/** registers[] index of the program counter */
+	int PROGRAM_COUNTER = 1;
+	/** registers[] index where run stores why it returned */
+	int STATUS = 2;
+	/** registers[] index of the address stored to last */
+	int LAST_STORE = 3;
+
+	/** run returned because maxSteps instructions were executed */
+	int STATUS_BUDGET = 0;
+	/** run returned because the program executed HALT */
+	int STATUS_HALTED = 1;
+	/** run returned at an instruction it cannot execute, which the interpreter must execute */
+	int STATUS_FALLBACK = 2;
+
+	/**
+	 * Executes the program from registers[PROGRAM_COUNTER] with the
+	 * accumulator registers[ACCUMULATOR], and stores the registers and the
+	 * status back before returning. Never throws: any instruction that could
+	 * fail is left to the interpreter.
+	 * @param data the data memory
+	 * @param registers the accumulator, program counter, status and last store
+	 * @param maxSteps the largest number of instructions to execute
+	 * @return the number of instructions executed
+	 */
+	long run(int[] data, int[] registers, long maxSteps);
+}
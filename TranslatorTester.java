@@ -0,0 +1,144 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static pippin.CompiledCodeTester.assertErrorAtFailingInstruction;
+import static pippin.CompiledCodeTester.assertEveryStepBoundary;
+import static pippin.CompiledCodeTester.assertRunMatchesStepping;
+import static pippin.CompiledCodeTester.machine;
+import static pippin.CompiledCodeTester.spreadData;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TranslatorTester {
+
+    @Test
+    // Test a translated run stopped after any number of steps matches single
+    // stepping, with the indirect ADD left to the interpreter
+    public void testEveryStepBoundary() {
+        MachineModel stepped = assertEveryStepBoundary(CompiledCodeTester.multiply(), CompiledCodeTester.multiplyData(), true);
+        assertEquals(42, stepped.getData(3));
+    }
+
+    @Test
+    // Test division by zero is reported by the interpreter at the failing instruction
+    public void testError() {
+        assertErrorAtFailingInstruction(true);
+    }
+
+    @Test
+    // Test the translation is made again when the code changes
+    public void testCodeChange() {
+        Code code = new Code();
+        code.setCode(0x1, 3, 0);  // 0: LOD 3
+        code.setCode(0x2, 0, 1);  // 1: STO [0]
+        MachineModel machine = machine(code, new int[Memory.DATA_SIZE], 0, true);
+        assertEquals(2, machine.run(2));
+        assertEquals(3, machine.getData(0));
+        code.setCode(0xF, 0, 0);  // 2: HALT
+        assertEquals(1, machine.run(10));
+        assertSame(StopReason.HALTED, machine.getStopReason());
+        assertArrayEquals(new int[] {0}, machine.drainChanges());
+    }
+
+    @Test
+    // Test every opcode, including unknown ones, at every level, with
+    // arguments inside and outside memory and too large for sipush
+    public void testEveryOpcodeAndLevel() {
+        int[] ops = new int[InstructionMap.mnemonics.size() + 2];
+        int n = 0;
+        for (int op : InstructionMap.mnemonics.keySet()) {
+            ops[n++] = op;
+        }
+        ops[n++] = 0xD;
+        ops[n++] = 0x30;
+        int[] args = {0, 3, 5, -1, 127, 128, Memory.DATA_SIZE - 1, Memory.DATA_SIZE, 40000, Integer.MIN_VALUE};
+        int[] accumulators = {0, 7, -100000};
+        int[] data = spreadData();
+        for (int op : ops) {
+            for (int level = 0; level < 4; level++) {
+                for (int arg : args) {
+                    for (int accumulator : accumulators) {
+                        Code code = new Code();
+                        code.setCode(0x1, accumulator, 0);  // 0: LOD accumulator
+                        code.setCode(op, arg, level);       // 1: the instruction
+                        code.setCode(0xF, 0, 0);            // 2: HALT
+                        assertRunMatchesStepping(code, data, 20, true);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    // Test immediate jumps to targets outside the program
+    public void testJumpsOutsideProgram() {
+        int[] targets = {-1, 3, 4, 1000, Integer.MAX_VALUE};
+        for (int target : targets) {
+            for (int op : new int[] {0xB, 0xC}) {
+                Code code = new Code();
+                code.setCode(0x1, 0, 0);       // 0: LOD 0
+                code.setCode(op, target, 0);   // 1: JUMP or JMPZ target
+                code.setCode(0xF, 0, 0);       // 2: HALT
+                assertRunMatchesStepping(code, spreadData(), 20, true);
+            }
+        }
+    }
+
+    @Test
+    // Test constants that need ldc_w in the translated code
+    public void testLargeConstants() {
+        Code code = new Code();
+        code.setCode(0x1, 0x12345678, 0);        // 0: LOD 12345678
+        code.setCode(0x3, -40000, 0);            // 1: ADD -40000
+        code.setCode(0x5, 70000, 0);             // 2: MUL 70000
+        code.setCode(0x6, Integer.MIN_VALUE, 0); // 3: DIV -80000000
+        code.setCode(0x2, 300, 1);               // 4: STO [300]
+        code.setCode(0x4, Integer.MAX_VALUE, 0); // 5: SUB 7FFFFFFF
+        code.setCode(0x7, 100000, 0);            // 6: AND 100000
+        code.setCode(0xF, 0, 0);                 // 7: HALT
+        for (int steps = 1; steps <= 9; steps++) {
+            assertRunMatchesStepping(code, spreadData(), steps, true);
+        }
+    }
+
+    @Test
+    // Test a loop filling the whole of code memory, whose branches are the
+    // longest in the translated code
+    public void testCodeMax() {
+        Code code = new Code();
+        code.setCode(0x9, 4, 1);   // 0: CMPZ [4]
+        code.setCode(0xC, 3, 0);   // 1: JMPZ 3
+        code.setCode(0xF, 0, 0);   // 2: HALT
+        code.setCode(0x1, 5, 1);   // 3: LOD [5]
+        while (code.getProgramSize() < Code.CODE_MAX - 5) {
+            int i = code.getProgramSize();
+            code.setCode(i % 3 == 0 ? 0x3 : i % 3 == 1 ? 0x5 : 0x4, 100000 + i, 0);
+        }
+        code.setCode(0x2, 5, 1);   // STO [5]
+        code.setCode(0x1, 4, 1);   // LOD [4]
+        code.setCode(0x4, 1, 0);   // SUB 1
+        code.setCode(0x2, 4, 1);   // STO [4]
+        code.setCode(0xB, 0, 0);   // JUMP 0
+        assertEquals(Code.CODE_MAX, code.getProgramSize());
+        int[] data = spreadData();
+        data[4] = 5;
+        int[] limits = {1, 254, 255, 256, 1000, 10000};
+        for (int limit : limits) {
+            assertRunMatchesStepping(code, data, limit, true);
+        }
+    }
+
+    @Test
+    // Test random programs, including illegal ones, run translated as they step
+    public void testRandomPrograms() {
+        Random random = new Random(23);
+        for (int i = 0; i < 2000; i++) {
+            Code code = CompiledCodeTester.randomProgram(random);
+            assertRunMatchesStepping(code, CompiledCodeTester.randomData(random), 1 + random.nextInt(200), true);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pippin;
+
+import java.util.Map;
+
+/**
+ * Checks a program once, before it runs, for everything that can be known
+ * from the code alone: every opcode is in InstructionMap.mnemonics, every
+ * indirection level is one its instruction accepts and every constant
+ * direct address is inside data memory. Code remembers the result, and
+ * MachineModel runs verified code on a path that does not repeat these
+ * checks at each step. Code that fails is still run, on the checked path,
+ * and fails when the bad instruction is reached, as it always has.
+ * <p>
+ * What depends on the data, such as the addresses used by indirect
+ * operands and jumps, division by zero and the ROT descriptor, is still
+ * checked when the instruction executes.
+ */
+public final class Verifier {
+	/** the legal indirection levels of each opcode, by bit */
+	private static final int[] LEVELS = new int[0x15];
+
+	static {
+		LEVELS[0x0] = 0b001; // NOP
+		LEVELS[0x1] = 0b111; // LOD
+		LEVELS[0x2] = 0b110; // STO
+		LEVELS[0x3] = 0b111; // ADD
+		LEVELS[0x4] = 0b111; // SUB
+		LEVELS[0x5] = 0b111; // MUL
+		LEVELS[0x6] = 0b111; // DIV
+		LEVELS[0x7] = 0b011; // AND
+		LEVELS[0x8] = 0b001; // NOT
+		LEVELS[0x9] = 0b010; // CMPZ
+		LEVELS[0xA] = 0b010; // CMPL
+		LEVELS[0xB] = 0b011; // JUMP
+		LEVELS[0xC] = 0b011; // JMPZ
+		// HALT executes at any level, but the assembler only writes HALT 0, so
+		// any other level comes from a hand-made executable and is reported.
+		// Such code runs on the checked path, where the HALT still halts.
+		LEVELS[0xF] = 0b001; // HALT
+		LEVELS[0x14] = 0b010; // ROT
+	}
+
+	private static final int ROT = 0x14;
+
+	private Verifier() {
+	}
+
+	/**
+	 * Checks every instruction of the code
+	 * @param code the program
+	 * @param errors the errors map, filled in with the index of each bad
+	 * instruction and what is wrong with it
+	 * @return true if the code has no errors
+	 */
+	public static boolean verify(Code code, Map<Integer, String> errors) {
+		if (errors == null){
+			throw new IllegalArgumentException("Coding error: the error map is null");
+		}
+		boolean verified = true;
+		for (int i = 0; i < code.getProgramSize(); i++) {
+			String error = check(code.fetch(i));
+			if (error != null) {
+				errors.put(i, "Error in instruction " + i + ": " + error);
+				verified = false;
+			}
+		}
+		return verified;
+	}
+
+	private static String check(long word) {
+		int op = Code.op(word);
+		int level = Code.level(word);
+		int arg = Code.arg(word);
+		String mnemonic = InstructionMap.mnemonics.get(op);
+		if (mnemonic == null) {
+			return "illegal opcode " + Integer.toHexString(op).toUpperCase();
+		}
+		if (level > 2 || (LEVELS[op] & 1 << level) == 0) {
+			return "illegal indirection level " + level + " in " + mnemonic;
+		}
+		// ROT reads its descriptor from arg, arg+1 and arg+2
+		int words = op == ROT ? 3 : 1;
+		if (level > 0 && (arg < 0 || arg > Memory.DATA_SIZE - words)) {
+			return "address " + arg + " is outside data memory";
+		}
+		return null;
+	}
+}
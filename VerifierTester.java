@@ -0,0 +1,153 @@
+package pippin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class VerifierTester {
+
+    @Test
+    // Test a correct program is verified
+    public void testVerified() {
+        Code code = CompiledCodeTester.multiply();
+        Map<Integer, String> errors = new TreeMap<>();
+        assertTrue(Verifier.verify(code, errors));
+        assertTrue(errors.isEmpty());
+        assertTrue(code.isVerified());
+    }
+
+    @Test
+    // Test each kind of error is reported at its instruction
+    public void testErrors() {
+        Code code = new Code();
+        code.setCode(0x1, 0, 0);                    // 0: LOD 0
+        code.setCode(0xD, 0, 0);                    // 1: no such opcode
+        code.setCode(0x7, 0, 2);                    // 2: AND [[0]]
+        code.setCode(0x2, Memory.DATA_SIZE, 1);     // 3: STO [512]
+        code.setCode(0x14, Memory.DATA_SIZE - 2, 1); // 4: ROT [510]
+        code.setCode(0x1, Memory.DATA_SIZE, 0);     // 5: LOD 512
+        Map<Integer, String> errors = new TreeMap<>();
+        assertFalse(Verifier.verify(code, errors));
+        assertEquals("[1, 2, 3, 4]", errors.keySet().toString());
+        assertEquals("Error in instruction 1: illegal opcode D", errors.get(1));
+        assertEquals("Error in instruction 2: illegal indirection level 2 in AND", errors.get(2));
+        assertFalse(code.isVerified());
+    }
+
+    @Test (expected=IllegalArgumentException.class)
+    // Test an unknown opcode is reported when it is reached
+    public void testUnknownOpcode() {
+        Code code = new Code();
+        code.setCode(0x1, 0, 0);  // 0: LOD 0
+        MachineModel machine = new MachineModel();
+        machine.setCode(code);
+        assertTrue(code.isVerified());
+        code.setCode(0x30, 0, 0); // 1: no such opcode
+        machine.step();
+        machine.step();
+    }
+
+    /**
+     * @return a running machine holding the code and
+     * CompiledCodeTester.spreadData()
+     */
+    private MachineModel machine(Code code, int accumulator) {
+        MachineModel machine = CompiledCodeTester.machine(code, CompiledCodeTester.spreadData(), 0, false);
+        machine.setAccumulator(accumulator);
+        machine.setRunning(true);
+        return machine;
+    }
+
+    @Test
+    // Test step() on verified code, which does not use the Instructions,
+    // does what each Instruction does at every legal level
+    public void testVerifiedStepMatchesInstructions() {
+        int[] args = {0, 3, 5, 6, 7, Memory.DATA_SIZE - 3, Memory.DATA_SIZE - 1, -4, 100000};
+        int[] accumulators = {0, 7, -3};
+        Set<Integer> reached = new TreeSet<>();
+        for (int op : InstructionMap.mnemonics.keySet()) {
+            for (int level = 0; level <= 2; level++) {
+                for (int arg : args) {
+                    Code code = new Code();
+                    code.setCode(op, arg, level);
+                    if (!code.isVerified()) {
+                        continue;
+                    }
+                    for (int accumulator : accumulators) {
+                        MachineModel stepped = machine(code, accumulator);
+                        Class<?> steppedError = null;
+                        try {
+                            stepped.step();
+                        } catch (RuntimeException e) {
+                            steppedError = e.getClass();
+                        }
+                        MachineModel executed = machine(code, accumulator);
+                        Class<?> executedError = null;
+                        try {
+                            executed.get(op).execute(arg, level);
+                        } catch (RuntimeException e) {
+                            executedError = e.getClass();
+                        }
+                        String instruction = code.getCodeText(0) + " with accumulator " + accumulator;
+                        assertEquals(instruction, executedError, steppedError);
+                        assertEquals(instruction, executed.getAccumulator(), stepped.getAccumulator());
+                        assertEquals(instruction, executed.getProgramCounter(), stepped.getProgramCounter());
+                        assertEquals(instruction, executed.isRunning(), stepped.isRunning());
+                        assertEquals(instruction, executed.getChangedIndex(), stepped.getChangedIndex());
+                        assertArrayEquals(instruction, executed.getData(), stepped.getData());
+                        assertArrayEquals(instruction, executed.drainChanges(), stepped.drainChanges());
+                        reached.add(op);
+                    }
+                }
+            }
+        }
+        assertEquals(InstructionMap.mnemonics.keySet(), reached);
+    }
+
+    @Test
+    // Test the cases that are easy to get wrong in the verified step
+    public void testVerifiedStepEdgeCases() {
+        Code code = new Code();
+        code.setCode(0x0, 0, 0);   // 0: NOP
+        code.setCode(0x7, 3, 1);   // 1: AND [3]
+        code.setCode(0xA, 2, 1);   // 2: CMPL [2]
+        code.setCode(0x6, 3, 1);   // 3: DIV [3]
+        MachineModel machine = machine(code, 5);
+        assertTrue(code.isVerified());
+        machine.step();
+        assertEquals(1, machine.getProgramCounter());
+        assertEquals(5, machine.getAccumulator());
+        machine.step();
+        assertEquals(0, machine.getAccumulator());
+        machine.step();
+        assertEquals(1, machine.getAccumulator());
+        try {
+            machine.step();
+        } catch (DivideByZeroException e) {
+            assertEquals(3, machine.getProgramCounter());
+            assertEquals(1, machine.getAccumulator());
+            assertEquals(3, machine.getStepCount());
+            return;
+        }
+        throw new AssertionError("DIV by zero did not throw");
+    }
+
+    @Test
+    // Test a HALT with a level is not verified but still halts
+    public void testHaltLevel() {
+        Code code = new Code();
+        code.setCode(0xF, 0, 1);
+        assertFalse(code.isVerified());
+        MachineModel machine = machine(code, 0);
+        machine.step();
+        assertFalse(machine.isRunning());
+    }
+}
@@ -0,0 +1,71 @@
+package pippin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembler.assemble on a generated, error free .pasm with codeLines
+ * instructions followed by as many data lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+	@Param({"1000", "100000"})
+	public int codeLines;
+
+	private static final String[] LINES = {
+		"LOD [[A", "STO [1F", "ADD 5", "SUB [3", "MUL -2", "DIV [[7", "AND [4",
+		"JUMP 0", "JMPZ 2", "NOT", "CMPZ [0", "CMPL [1", "ROT [10", "NOP", "HALT"
+	};
+
+	private File source;
+	private File executable;
+
+	@Setup
+	public void setup() throws IOException {
+		source = File.createTempFile("bench", ".pasm");
+		executable = File.createTempFile("bench", ".pexe");
+		try (PrintWriter out = new PrintWriter(source)) {
+			for(int i = 0; i < codeLines; i++) {
+				out.println(LINES[i % LINES.length]);
+			}
+			out.println("DATA");
+			for(int i = 0; i < codeLines; i++) {
+				out.println(Integer.toString(i % Memory.DATA_SIZE, 16) + " " + Integer.toString(i - 500, 16));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		source.delete();
+		executable.delete();
+	}
+
+	@Benchmark
+	public boolean assemble() {
+		Map<Integer, String> errors = new TreeMap<>();
+		return Assembler.assemble(source, executable, errors);
+	}
+}
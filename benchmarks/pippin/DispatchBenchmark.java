@@ -0,0 +1,73 @@
+package pippin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a single MachineModel.step() for each opcode. The code memory is
+ * filled with the instruction under test, and the last slot jumps back to 0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+	@Param({"NOP", "LOD", "LOD[[", "STO", "ADD", "SUB", "MUL", "DIV", "AND",
+		"NOT", "CMPZ", "CMPL", "JUMP", "JMPZ", "ROT"})
+	public String instruction;
+
+	private MachineModel model;
+
+	@Setup
+	public void setup() {
+		model = new MachineModel();
+		Code code = new Code();
+		for(int i = 0; i < Code.CODE_MAX - 1; i++) {
+			switch(instruction) {
+			case "NOP": code.setCode(0x0, 0, 0); break;
+			case "LOD": code.setCode(0x1, 1, 1); break;
+			case "LOD[[": code.setCode(0x1, 3, 2); break;
+			case "STO": code.setCode(0x2, 2, 1); break;
+			case "ADD": code.setCode(0x3, 1, 1); break;
+			case "SUB": code.setCode(0x4, 1, 1); break;
+			case "MUL": code.setCode(0x5, 1, 1); break;
+			case "DIV": code.setCode(0x6, 1, 1); break;
+			case "AND": code.setCode(0x7, 1, 1); break;
+			case "NOT": code.setCode(0x8, 0, 0); break;
+			case "CMPZ": code.setCode(0x9, 1, 1); break;
+			case "CMPL": code.setCode(0xA, 1, 1); break;
+			case "JUMP": code.setCode(0xB, i + 1, 0); break;
+			case "JMPZ": code.setCode(0xC, i + 1, 0); break;
+			case "ROT": code.setCode(0x14, 4, 1); break;
+			default: throw new IllegalArgumentException(instruction);
+			}
+		}
+		code.setCode(0xB, 0, 0);
+		model.setData(1, 1);
+		model.setData(3, 1);
+		// ROT region descriptor at 4..6: rotate data[16..47] left by 3
+		model.setData(4, 16);
+		model.setData(5, 32);
+		model.setData(6, -3);
+		model.setCode(code);
+	}
+
+	@Benchmark
+	public int step() {
+		model.step();
+		return model.getProgramCounter();
+	}
+}
@@ -0,0 +1,90 @@
+package pippin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loader.load on a generated .pexe, and on the same program in the binary
+ * format, with a full code section and dataLines data lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+	@Param({"512", "100000"})
+	public int dataLines;
+
+	private File executable;
+	private File binary;
+
+	@Setup
+	public void setup() throws IOException {
+		executable = File.createTempFile("bench", ".pexe");
+		try (PrintWriter out = new PrintWriter(executable)) {
+			for(int i = 0; i < Code.CODE_MAX; i++) {
+				out.println(Integer.toString(0x3, 16) + " " + Integer.toString(i, 16).toUpperCase() + " 1");
+			}
+			out.println(-1);
+			for(int i = 0; i < dataLines; i++) {
+				out.println(Integer.toString(i % Memory.DATA_SIZE, 16).toUpperCase() + " "
+						+ Integer.toString(i * 7 - 1000, 16).toUpperCase());
+			}
+		}
+		binary = File.createTempFile("bench", "." + BinaryExecutable.EXTENSION);
+		long[] code = new long[Code.CODE_MAX];
+		for(int i = 0; i < Code.CODE_MAX; i++) {
+			code[i] = Code.encode(0x3, i, 1);
+		}
+		int[] addresses = new int[dataLines];
+		int[] values = new int[dataLines];
+		for(int i = 0; i < dataLines; i++) {
+			addresses[i] = i % Memory.DATA_SIZE;
+			values[i] = i * 7 - 1000;
+		}
+		BinaryExecutable.write(binary, code, code.length, addresses, values, dataLines);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executable.delete();
+		binary.delete();
+	}
+
+	@Benchmark
+	public Code load() throws IOException {
+		MachineModel model = new MachineModel();
+		Code code = new Code();
+		Map<Integer, String> errors = new TreeMap<>();
+		Loader.load(model, code, executable, errors);
+		return code;
+	}
+
+	@Benchmark
+	public Code loadBinary() throws IOException {
+		MachineModel model = new MachineModel();
+		Code code = new Code();
+		Map<Integer, String> errors = new TreeMap<>();
+		Loader.load(model, code, binary, errors);
+		return code;
+	}
+}
@@ -0,0 +1,92 @@
+package pippin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-program throughput of MachineModel.run() on small loop kernels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopBenchmark {
+	@Param({"10000"})
+	public int iterations;
+
+	private Program countdown;
+	private Program rotate;
+	private MachineModel countdownModel;
+	private MachineModel rotateModel;
+
+	@Setup
+	public void setup() {
+		countdown = new Program("countdown", SamplePrograms.countdown(), SamplePrograms.countdownData(iterations));
+		rotate = new Program("rotate", rotateCode(), rotateImage(iterations));
+	}
+
+	/**
+	 * Rotates data[16..271] by data[6] on each pass of a countdown in data[0].
+	 */
+	static Code rotateCode() {
+		Code code = new Code();
+		code.setCode(0x9, 0, 1);  // 0: CMPZ [0]
+		code.setCode(0xC, 3, 0);  // 1: JMPZ 3
+		code.setCode(0xF, 0, 0);  // 2: HALT
+		code.setCode(0x14, 4, 1); // 3: ROT [4]
+		code.setCode(0x1, 0, 1);  // 4: LOD [0]
+		code.setCode(0x4, 1, 0);  // 5: SUB 1
+		code.setCode(0x2, 0, 1);  // 6: STO [0]
+		code.setCode(0xB, 0, 0);  // 7: JUMP 0
+		return code;
+	}
+
+	static int[] rotateImage(int counter) {
+		int[] data = SamplePrograms.countdownData(counter);
+		data[4] = 16;
+		data[5] = 256;
+		data[6] = -37;
+		for(int i = 16; i < 16 + 256; i++) {
+			data[i] = i;
+		}
+		return data;
+	}
+
+	/**
+	 * A new machine for each call, built outside the timed region so only
+	 * run() is measured.
+	 */
+	@Setup(Level.Invocation)
+	public void newMachines() {
+		countdownModel = new MachineModel();
+		countdownModel.setProgram(countdown);
+		rotateModel = new MachineModel();
+		rotateModel.setProgram(rotate);
+	}
+
+	@Benchmark
+	public int countdown() {
+		countdownModel.run(Long.MAX_VALUE);
+		return countdownModel.getData(1);
+	}
+
+	@Benchmark
+	public int rotate() {
+		rotateModel.run(Long.MAX_VALUE);
+		return rotateModel.getData(16);
+	}
+}